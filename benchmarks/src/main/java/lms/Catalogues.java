@@ -0,0 +1,105 @@
+package lms;
+
+import java.util.Random;
+
+/**
+ * Builds synthetic libraries for the benchmarks.
+ * <p>
+ * Titles are drawn from a fixed word list and authors from a pool that grows with the catalogue, so the trigram indexes see
+ * realistic posting list sizes. ISBNs are 13-digit numbers derived from the book number.
+ */
+final class Catalogues {
+    private static final String[] WORDS = {
+            "the", "night", "river", "garden", "silent", "winter", "house", "shadow", "empire", "stone",
+            "secret", "ocean", "last", "light", "city", "dark", "history", "journey", "fire", "glass",
+            "kingdom", "song", "island", "storm", "letters", "mountain", "children", "war", "memory", "road",
+            "golden", "forest", "queen", "machine", "wild", "moon", "broken", "hidden", "summer", "truth"
+    }; // Words titles are made of
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Ben", "Chloe", "David", "Elena", "Frank", "Grace", "Henry", "Iris", "James",
+            "Karen", "Liam", "Maria", "Noah", "Olga", "Peter", "Rosa", "Sam", "Thandi", "Victor"
+    }; // First names authors are made of
+    private static final String[] SURNAMES = {
+            "Adams", "Botha", "Clarke", "Dlamini", "Evans", "Fischer", "Garcia", "Hughes", "Ito", "Jacobs",
+            "Khumalo", "Lopez", "Meyer", "Naidoo", "Olsen", "Pretorius", "Quinn", "Rossi", "Smit", "Turner"
+    }; // Surnames authors are made of
+    private static final int BOOKS_PER_AUTHOR = 20; // Average number of books written by one author
+
+    private Catalogues() {
+    }
+
+    /**
+     * Gets the ISBN of the specified book number.
+     *
+     * @param n The book number.
+     * @return The 13-digit ISBN of the book.
+     */
+    static String isbn(int n) {
+        String digits = Integer.toString(n);
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        for (int i = digits.length(); i < 10; i++) {
+            isbn.append('0');
+        }
+        return isbn.append(digits).toString();
+    }
+
+    /**
+     * Gets the name of the specified member number.
+     *
+     * @param n The member number.
+     * @return The name of the member.
+     */
+    static String memberName(int n) {
+        return "Member " + n;
+    }
+
+    /**
+     * Generates a random title.
+     *
+     * @param random The source of randomness.
+     * @return A title of two to four words.
+     */
+    static String title(Random random) {
+        int words = 2 + random.nextInt(3);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return title.toString();
+    }
+
+    /**
+     * Gets the name of the specified author number.
+     *
+     * @param n The author number.
+     * @return The name of the author.
+     */
+    static String author(int n) {
+        return FIRST_NAMES[n % FIRST_NAMES.length] + " " + SURNAMES[(n / FIRST_NAMES.length) % SURNAMES.length] + " " + (n / (FIRST_NAMES.length * SURNAMES.length));
+    }
+
+    /**
+     * Builds a library without background processing holding the specified number of books and members.
+     *
+     * @param books   The number of books.
+     * @param members The number of members.
+     * @param seed    The seed for the generated titles and authors.
+     * @return The populated library.
+     */
+    static Library populate(int books, int members, long seed) {
+        Random random = new Random(seed);
+        int authors = Math.max(1, books / BOOKS_PER_AUTHOR);
+        Library library = new Library(false);
+        for (int i = 0; i < books; i++) {
+            library.addBook(new Book(title(random), author(random.nextInt(authors)), isbn(i)));
+        }
+        for (int i = 0; i < members; i++) {
+            library.addMember(new Member(memberName(i), "member" + i + "@example.com", 0));
+        }
+        return library;
+    }
+}
@@ -0,0 +1,63 @@
+package lms;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of checking a book out and returning it again.
+ * <p>
+ * Every checkout leaves an entry in the due loan queue that is only discarded once it comes due, so the queue grows over a run
+ * just as it does at a busy desk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class CirculationBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int size; // Number of books and members in the catalogue
+
+    private Library library; // Library circulating the books
+    private String[] isbns; // ISBNs of the books, in catalogue order
+    private String[] names; // Names of the members, in roll order
+    private int next = 0; // Number of loans made so far
+
+    /**
+     * Builds the catalogue.
+     */
+    @Setup
+    public void setup() {
+        library = Catalogues.populate(size, size, 42);
+        isbns = new String[size];
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            isbns[i] = Catalogues.isbn(i);
+            names[i] = Catalogues.memberName(i);
+        }
+    }
+
+    /**
+     * Checks a book out to a member and returns it, walking the catalogue and the roll with different strides.
+     */
+    @Benchmark
+    public void checkoutAndReturn() {
+        int n = next++;
+        String isbn = isbns[n % size];
+        String name = names[(int) ((n * 7919L) % size)];
+        library.checkoutBook(isbn, name, FineProcessing.DUEDAYS);
+        library.returnBook(isbn, name);
+    }
+}
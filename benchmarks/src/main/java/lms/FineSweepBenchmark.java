@@ -0,0 +1,73 @@
+package lms;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by one fine processing sweep over a backlog of overdue loans.
+ * <p>
+ * One in ten books is overdue before every sweep. Notifications are collected in memory and never dispatched. The sweep either runs
+ * in one thread or splits every batch of due loans across the fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class FineSweepBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int size; // Number of books and members in the catalogue
+
+    @Param({"false", "true"})
+    public boolean parallel; // Whether the due loans are swept in parallel
+
+    private Library library; // Library holding the overdue loans
+    private FineProcessing fines; // Fine processing module swept
+
+    /**
+     * Builds the catalogue and the fine processing module.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        library = Catalogues.populate(size, size, 42);
+        fines = new FineProcessing(library, new NotificationProcessing(library, new InMemoryNotificationSender()), parallel ? 1 : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the loans fined by the previous sweep and checks out every tenth book again with a due date in the past.
+     */
+    @Setup(Level.Iteration)
+    public void overdue() {
+        LocalDateTime due = LocalDateTime.now().minusDays(1);
+        for (int i = 0; i < size; i += 10) {
+            String isbn = Catalogues.isbn(i);
+            String name = Catalogues.memberName(i);
+            if (!library.searchBooksByIsbn(isbn).isAvailable()) {
+                library.returnBook(isbn, name);
+            }
+            library.checkoutBook(isbn, name, due);
+        }
+    }
+
+    /**
+     * Fines every overdue loan.
+     */
+    @Benchmark
+    public void fineManagement() {
+        fines.fineManagement();
+    }
+}
@@ -0,0 +1,57 @@
+package lms;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+
+/**
+ * Measures the heap retained by a populated library, for comparing the footprint of the catalogue across changes.
+ * <p>
+ * Builds a catalogue of the specified number of books with one member for every ten books, checks out every tenth book and
+ * reports the heap still in use after garbage collection, in total and per book. Run it with enough heap for the catalogue, for example:
+ * gradle :benchmarks:footprint -PfootprintArgs=5000000
+ */
+public final class HeapFootprint {
+    private static final int DEFAULT_SIZE = 5_000_000; // Number of books measured when no size is given
+    private static final int BOOKS_PER_MEMBER = 10; // Books in the catalogue for every member
+
+    private HeapFootprint() {
+    }
+
+    /**
+     * Builds the catalogue and prints its retained heap.
+     *
+     * @param args The number of books, optional.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        long before = usedHeap();
+        Library library = Catalogues.populate(size, size / BOOKS_PER_MEMBER, 42);
+        for (int i = 0; i < size; i += BOOKS_PER_MEMBER) {
+            library.checkoutBook(Catalogues.isbn(i), Catalogues.memberName(i / BOOKS_PER_MEMBER), FineProcessing.DUEDAYS);
+        }
+        long retained = usedHeap() - before;
+        Reference.reachabilityFence(library);
+        System.out.println("Books: " + size + " | Members: " + size / BOOKS_PER_MEMBER + " | Loans: " + (size + BOOKS_PER_MEMBER - 1) / BOOKS_PER_MEMBER);
+        System.out.println("Retained heap: " + retained / (1024 * 1024) + " MB | Per book: " + retained / size + " bytes");
+    }
+
+    /**
+     * Gets the heap in use after collecting garbage until the figure settles.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,77 @@
+package lms;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken to save the library and to load it back from the snapshot or the text files.
+ * <p>
+ * The files are written to the working directory of the benchmark run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class PersistenceBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int size; // Number of books and members in the catalogue
+
+    private Library library; // Library saved
+
+    /**
+     * Builds the catalogue, checks out every tenth book and saves it once so there are files to load.
+     */
+    @Setup
+    public void setup() {
+        library = Catalogues.populate(size, size, 42);
+        for (int i = 0; i < size; i += 10) {
+            library.checkoutBook(Catalogues.isbn(i), Catalogues.memberName(i), FineProcessing.DUEDAYS);
+        }
+        library.saveData();
+    }
+
+    /**
+     * Saves the text files and a new snapshot.
+     */
+    @Benchmark
+    public void saveData() {
+        library.saveData();
+    }
+
+    /**
+     * Loads a new library from the snapshot.
+     *
+     * @return The loaded library.
+     */
+    @Benchmark
+    public Library loadData() {
+        Library loaded = new Library(false);
+        loaded.loadData();
+        return loaded;
+    }
+
+    /**
+     * Imports a new library from the text files.
+     *
+     * @return The imported library.
+     */
+    @Benchmark
+    public Library importData() {
+        Library imported = new Library(false);
+        imported.importData();
+        return imported;
+    }
+}
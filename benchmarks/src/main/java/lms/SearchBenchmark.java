@@ -0,0 +1,103 @@
+package lms;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of ISBN, title and author lookups, and of ranked searches with typos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx24g"})
+public class SearchBenchmark {
+    private static final int QUERIES = 1024; // Number of prepared queries, a power of two
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size; // Number of books and members in the catalogue
+
+    private Library library; // Library searched
+    private String[] isbns = new String[QUERIES]; // ISBNs looked up, in the hyphenated form users type
+    private String[] titles = new String[QUERIES]; // Title fragments searched for
+    private String[] authors = new String[QUERIES]; // Author fragments searched for
+    private String[] rankedQueries = new String[QUERIES]; // Title words with a typo followed by an author surname, for ranked searches
+    private int next = 0; // Index of the next query
+
+    /**
+     * Builds the catalogue and prepares the queries.
+     */
+    @Setup
+    public void setup() {
+        library = Catalogues.populate(size, size, 42);
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            String isbn = Catalogues.isbn(random.nextInt(size));
+            isbns[i] = isbn.substring(0, 3) + "-" + isbn.substring(3);
+            String title = Catalogues.title(random);
+            titles[i] = title.substring(0, title.indexOf(' ') + 3);
+            authors[i] = Catalogues.author(random.nextInt(Math.max(1, size / 20))).split(" ")[1];
+            // Swap two letters of the first title word, as a hurried typist would
+            char[] typo = title.substring(0, title.indexOf(' ')).toCharArray();
+            int at = 1 + random.nextInt(typo.length - 2);
+            char swapped = typo[at];
+            typo[at] = typo[at + 1];
+            typo[at + 1] = swapped;
+            rankedQueries[i] = new String(typo) + " " + authors[i];
+        }
+    }
+
+    /**
+     * Looks up a book by ISBN.
+     *
+     * @return The book found.
+     */
+    @Benchmark
+    public Book searchBooksByIsbn() {
+        return library.searchBooksByIsbn(isbns[next++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Searches for books by a title fragment.
+     *
+     * @return The books found.
+     */
+    @Benchmark
+    public List<Book> searchBooksByTitle() {
+        return library.searchBooksByTitle(titles[next++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Searches for books by an author surname.
+     *
+     * @return The books found.
+     */
+    @Benchmark
+    public List<Book> searchBooksByAuthor() {
+        return library.searchBooksByAuthor(authors[next++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Searches for the ten best matches of a title word with a typo and an author surname.
+     *
+     * @return The books found.
+     */
+    @Benchmark
+    public List<Book> searchBooksRanked() {
+        return library.searchBooksRanked(rankedQueries[next++ & (QUERIES - 1)], 10);
+    }
+}
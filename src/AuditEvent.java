@@ -0,0 +1,174 @@
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Represents one structured entry in the audit log.
+ * <p>
+ * An event is stored as a single tab-separated line of epoch milliseconds, event type, member name, ISBN, amount and a free-text detail,
+ * so it can be read back and filtered without parsing prose.
+ */
+public class AuditEvent {
+    /**
+     * The kinds of audited event.
+     */
+    public enum Type {
+        FINE, // An overdue fine charged to a member
+        PAYMENT, // A payment made off a member's fines
+        WITHDRAW, // A copy withdrawn after not being returned
+        IMPORT, // A catalogue import
+        BATCH // A batch of circulation transactions
+    }
+
+    private static final String SEPARATOR = "\t"; // Separator between the fields of a stored event
+
+    private long epochMillis; // When the event happened, in milliseconds since the epoch
+    private Type type; // The kind of event
+    private String memberName; // The name of the member involved, or null
+    private String isbn; // The ISBN of the book involved, or null
+    private int amount; // The amount involved, zero if none
+    private String detail; // Free-text description of the event
+
+    /**
+     * Constructs an AuditEvent that happens now.
+     *
+     * @param type       The kind of event.
+     * @param memberName The name of the member involved, or null.
+     * @param isbn       The ISBN of the book involved, or null.
+     * @param amount     The amount involved, zero if none.
+     * @param detail     A free-text description of the event.
+     */
+    public AuditEvent(Type type, String memberName, String isbn, int amount, String detail) {
+        this(System.currentTimeMillis(), type, memberName, isbn, amount, detail);
+    }
+
+    /**
+     * Constructs an AuditEvent that happened at a specific time.
+     *
+     * @param epochMillis When the event happened, in milliseconds since the epoch.
+     * @param type        The kind of event.
+     * @param memberName  The name of the member involved, or null.
+     * @param isbn        The ISBN of the book involved, or null.
+     * @param amount      The amount involved, zero if none.
+     * @param detail      A free-text description of the event.
+     */
+    public AuditEvent(long epochMillis, Type type, String memberName, String isbn, int amount, String detail) {
+        this.epochMillis = epochMillis;
+        this.type = type;
+        this.memberName = memberName;
+        this.isbn = isbn;
+        this.amount = amount;
+        this.detail = detail;
+    }
+
+    /**
+     * Parses an event from a stored line.
+     *
+     * @param line The stored line, without its line separator.
+     * @return The event.
+     * @throws IllegalArgumentException If the line is not a stored event.
+     */
+    public static AuditEvent parse(String line) {
+        String[] parts = line.split(SEPARATOR, -1);
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Not an audit event: " + line);
+        }
+        try {
+            return new AuditEvent(Long.parseLong(parts[0]), Type.valueOf(parts[1]), emptyToNull(parts[2]), emptyToNull(parts[3]), Integer.parseInt(parts[4]), parts[5]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not an audit event: " + line, e);
+        }
+    }
+
+    /**
+     * Formats the event as a stored line.
+     *
+     * @return The fields of the event separated by tabs, without a line separator.
+     */
+    public String toLine() {
+        return epochMillis + SEPARATOR + type + SEPARATOR + clean(memberName) + SEPARATOR + clean(isbn) + SEPARATOR + amount + SEPARATOR + clean(detail);
+    }
+
+    /**
+     * Gets when the event happened.
+     *
+     * @return The time of the event in milliseconds since the epoch.
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Gets when the event happened in the local time zone.
+     *
+     * @return The local time of the event.
+     */
+    public LocalDateTime getTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * Gets the kind of event.
+     *
+     * @return The event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the name of the member involved.
+     *
+     * @return The member name, or null if no member was involved.
+     */
+    public String getMemberName() {
+        return memberName;
+    }
+
+    /**
+     * Gets the ISBN of the book involved.
+     *
+     * @return The ISBN, or null if no book was involved.
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Gets the amount involved.
+     *
+     * @return The amount, zero if none.
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the free-text description of the event.
+     *
+     * @return The detail.
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Prepares a field for storage by replacing characters that would break the line format.
+     *
+     * @param value The field value, may be null.
+     * @return The value with tabs and line breaks replaced by spaces, or an empty string for null.
+     */
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Reads back a stored field, turning an empty field into null.
+     *
+     * @param value The stored field.
+     * @return The value, or null if it is empty.
+     */
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
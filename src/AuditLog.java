@@ -0,0 +1,638 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes structured audit events asynchronously to a log store partitioned by day, and answers queries over it.
+ * <p>
+ * Callers only place an event in a bounded ring buffer. A single writer thread appends the buffered events in batches to the partition
+ * of the day they happened and records the offset of every event involving a member in the partition's index. A day's partition is
+ * split into segments of bounded size, audit-yyyy-MM-dd.N.log with its index audit-yyyy-MM-dd.N.idx, so a day of mass overdue fines
+ * cannot grow a single file without bound, and partitions older than the retention window are deleted. A query only opens the
+ * partitions of the days it covers, and a query for a member only reads that member's events from each segment by their indexed offsets.
+ * <p>
+ * An index holds a fixed-size entry per event: a hash of the member's name, the offset of the event and its length. Entries are appended
+ * in the order the events are written, and once the writer moves on to another segment, the closed segment's index is sealed by sorting
+ * its entries by hash. A member query binary searches a sealed index and reads only the run of the member's entries, so its cost grows
+ * with the member's events rather than all events of the day. Only the open segment's index, bounded by the segment size, is scanned.
+ * <p>
+ * Partitions written before segments, audit-yyyy-MM-dd.log, are still read as the first segment of their day.
+ */
+public class AuditLog implements Runnable {
+    /**
+     * Determines when appended events are forced to disk.
+     */
+    public enum SyncPolicy {
+        NEVER, // Leave forcing to the operating system
+        INTERVAL, // Force at most once per sync interval
+        EVERY_BATCH // Force after every batch of events
+    }
+
+    private static final int BUFFER_CAPACITY = 8192; // Maximum number of events waiting to be written
+    private static final int MAX_BATCH = 1024; // Maximum number of events written in one batch
+    private static final String PARTITION_PREFIX = "audit-"; // File name prefix of a partition
+    private static final String LOG_SUFFIX = ".log"; // File name suffix of a partition's events
+    private static final String INDEX_SUFFIX = ".idx"; // File name suffix of a partition's member index
+    private static final int UNNUMBERED = -1; // Segment number of a partition written before segments
+    private static final int INDEX_MAGIC = 0x4C4D5349; // "LMSI" index file signature
+    private static final int INDEX_APPENDING = 0; // Index state of entries in the order they were written
+    private static final int INDEX_SEALED = 1; // Index state of entries sorted by member hash, then offset
+    private static final int INDEX_HEADER_BYTES = 8; // Size of an index's signature and state
+    private static final int INDEX_ENTRY_BYTES = 20; // Size of an index entry: member hash, event offset and event length
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L; // Starting value of the member name hash
+    private static final long FNV_PRIME = 0x100000001B3L; // Multiplier of the member name hash
+
+    private Path directory; // Directory holding the partitions
+    private int retentionDays; // Number of days of partitions kept
+    private long segmentBytes; // Size after which a partition continues in a new segment
+    private SyncPolicy syncPolicy; // When events are forced to disk
+    private long syncIntervalMillis; // Interval between forces for the INTERVAL policy
+
+    private BlockingQueue<AuditEvent> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY); // Ring buffer of events waiting to be written
+    private Thread writer = new Thread(this, "audit-log-writer"); // Thread writing the buffered events
+    private final Object channelLock = new Object(); // Guards the open partition's channels while the writer writes or a flush forces them
+    private LocalDate partition; // Day of the open partition
+    private int segment; // Number of the open segment of the partition
+    private FileChannel channel; // Channel of the open segment's events
+    private FileChannel indexChannel; // Channel of the open segment's member index
+    private long size; // Current size of the open segment's events
+    private long lastSync; // Time the log was last forced to disk
+    private long enqueued = 0; // Events placed in the buffer, guarded by this
+    private long written = 0; // Events written to the store, guarded by this
+
+    /**
+     * Constructs an AuditLog storing its partitions in the specified directory and starts its writer thread.
+     *
+     * @param directory          The directory holding the partitions, created on the first write.
+     * @param retentionDays      The number of days of partitions kept before older ones are deleted.
+     * @param segmentBytes       The size in bytes after which a partition continues in a new segment.
+     * @param syncPolicy         When appended events are forced to disk.
+     * @param syncIntervalMillis The interval between forces for the INTERVAL policy.
+     */
+    public AuditLog(String directory, int retentionDays, long segmentBytes, SyncPolicy syncPolicy, long syncIntervalMillis) {
+        this.directory = Paths.get(directory);
+        this.retentionDays = retentionDays;
+        this.segmentBytes = segmentBytes;
+        this.syncPolicy = syncPolicy;
+        this.syncIntervalMillis = syncIntervalMillis;
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Places an event in the buffer to be written.
+     * <p>
+     * Only blocks if the writer has fallen a full buffer behind.
+     *
+     * @param event The event to log.
+     */
+    public void log(AuditEvent event) {
+        synchronized (this) {
+            enqueued++;
+        }
+        try {
+            buffer.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                enqueued--;
+            }
+        }
+    }
+
+    /**
+     * Places a batch of events in the buffer to be written, counting them in one step.
+     * <p>
+     * Only blocks while the writer has fallen a full buffer behind, so a batch larger than the buffer is handed over as it is written.
+     *
+     * @param events The events to log, in the order they happened.
+     */
+    public void logAll(List<AuditEvent> events) {
+        synchronized (this) {
+            enqueued += events.size();
+        }
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                buffer.put(events.get(i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    enqueued -= events.size() - i;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until every event logged so far has been written and forces the log to disk.
+     */
+    public void flush() {
+        synchronized (this) {
+            long target = enqueued;
+            while (written < target) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        synchronized (channelLock) {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                    indexChannel.force(false);
+                }
+            } catch (IOException e) {
+                System.err.println("An error occurred while writing logs: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds the events that happened in a time range, optionally only those involving one member.
+     * <p>
+     * Events logged before the call are written first, so they are included. Only the partitions of the days in the range are read.
+     *
+     * @param from       The start of the range, inclusive.
+     * @param to         The end of the range, exclusive.
+     * @param memberName The name of the member to filter by, ignoring case, or null for all events.
+     * @return The matching events, oldest first.
+     * @throws IOException If a partition could not be read.
+     */
+    public List<AuditEvent> query(LocalDateTime from, LocalDateTime to, String memberName) throws IOException {
+        flush();
+        long fromMillis = from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long toMillis = to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String memberKey = memberName == null ? null : Library.memberKey(memberName);
+        List<AuditEvent> events = new ArrayList<>();
+        for (Map.Entry<LocalDate, TreeSet<Integer>> partition : listPartitions().subMap(from.toLocalDate(), true, to.toLocalDate(), true).entrySet()) {
+            for (int number : partition.getValue()) {
+                LocalDate day = partition.getKey();
+                List<AuditEvent> candidates = memberKey == null ? readSegment(day, number) : readIndexed(day, number, memberKey);
+                for (AuditEvent event : candidates) {
+                    if (event.getEpochMillis() >= fromMillis && event.getEpochMillis() < toMillis
+                            && (memberKey == null || (event.getMemberName() != null && Library.memberKey(event.getMemberName()).equals(memberKey)))) {
+                        events.add(event);
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Writes buffered events in batches until the program exits.
+     */
+    public void run() {
+        List<AuditEvent> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, MAX_BATCH - 1);
+            synchronized (channelLock) {
+                try {
+                    write(batch);
+                } catch (IOException e) {
+                    System.err.println("An error occurred while writing logs: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Appends a batch to the partitions of the days its events happened on and indexes the events involving a member.
+     * <p>
+     * The events are written before their index entries, so an index never points past the events it covers. A segment that has
+     * reached the segment size is closed and the partition continues in the next segment.
+     *
+     * @param batch The events to write.
+     * @throws IOException If the batch could not be written.
+     */
+    private void write(List<AuditEvent> batch) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteBuffer index = ByteBuffer.allocate(batch.size() * INDEX_ENTRY_BYTES);
+        int i = 0;
+        while (i < batch.size()) {
+            LocalDate day = dayOf(batch.get(i).getEpochMillis());
+            if (!day.equals(partition) || size >= segmentBytes) {
+                open(day);
+            }
+            // Encode the run of events falling on the open partition's day that fits in the open segment
+            for (; i < batch.size() && size + data.size() < segmentBytes && dayOf(batch.get(i).getEpochMillis()).equals(day); i++) {
+                AuditEvent event = batch.get(i);
+                byte[] line = (event.toLine() + "\n").getBytes(StandardCharsets.UTF_8);
+                if (event.getMemberName() != null) {
+                    index.putLong(hash(Library.memberKey(event.getMemberName()))).putLong(size + data.size()).putInt(line.length - 1);
+                }
+                data.write(line, 0, line.length);
+            }
+            size += writeFully(channel, ByteBuffer.wrap(data.toByteArray()));
+            index.flip();
+            writeFully(indexChannel, index);
+            data.reset();
+            index.clear();
+        }
+        long now = System.currentTimeMillis();
+        if (syncPolicy == SyncPolicy.EVERY_BATCH || (syncPolicy == SyncPolicy.INTERVAL && now - lastSync >= syncIntervalMillis)) {
+            channel.force(false);
+            indexChannel.force(false);
+            lastSync = now;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     *
+     * @param target The channel to write to.
+     * @param bytes  The bytes to write.
+     * @return The number of bytes written.
+     * @throws IOException If the bytes could not be written.
+     */
+    private static long writeFully(FileChannel target, ByteBuffer bytes) throws IOException {
+        long count = 0;
+        while (bytes.hasRemaining()) {
+            count += target.write(bytes);
+        }
+        return count;
+    }
+
+    /**
+     * Closes the open segment and opens a segment of the partition of the specified day for appending, then deletes partitions past
+     * retention.
+     * <p>
+     * A full segment continues in the next segment of its day. Otherwise the last segment of the day is appended to unless it has been
+     * sealed, or a first segment is started. The closed segment's index is sealed, and when the writer opens its first segment, so are
+     * the indexes left appending by an earlier run.
+     *
+     * @param day The day of the partition to open.
+     * @throws IOException If the segment could not be opened.
+     */
+    private void open(LocalDate day) throws IOException {
+        int next;
+        if (day.equals(partition)) {
+            next = segment + 1; // The open segment is full
+        } else {
+            TreeSet<Integer> numbers = listPartitions().get(day);
+            next = numbers == null ? 0 : Math.max(numbers.last(), 0);
+            if (Files.exists(partitionFile(day, next, LOG_SUFFIX))
+                    && (Files.size(partitionFile(day, next, LOG_SUFFIX)) >= segmentBytes || indexState(day, next) == INDEX_SEALED)) {
+                next++;
+            }
+        }
+        if (channel != null) {
+            channel.force(false);
+            indexChannel.force(false);
+            channel.close();
+            indexChannel.close();
+            channel = null;
+            seal(partition, segment);
+        } else {
+            for (Map.Entry<LocalDate, TreeSet<Integer>> earlier : listPartitions().entrySet()) {
+                for (int number : earlier.getValue()) {
+                    if (number != UNNUMBERED && !(earlier.getKey().equals(day) && number == next) && indexState(earlier.getKey(), number) == INDEX_APPENDING) {
+                        seal(earlier.getKey(), number);
+                    }
+                }
+            }
+        }
+        Files.createDirectories(directory);
+        channel = FileChannel.open(partitionFile(day, next, LOG_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        indexChannel = FileChannel.open(partitionFile(day, next, INDEX_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long indexSize = indexChannel.size();
+        if (indexSize < INDEX_HEADER_BYTES) {
+            indexChannel.truncate(0);
+            writeFully(indexChannel, ByteBuffer.allocate(INDEX_HEADER_BYTES).putInt(INDEX_MAGIC).putInt(INDEX_APPENDING).flip());
+        } else {
+            // Drop an entry cut short by a crash, so new entries stay aligned
+            indexChannel.truncate(indexSize - (indexSize - INDEX_HEADER_BYTES) % INDEX_ENTRY_BYTES);
+            indexChannel.position(indexChannel.size());
+        }
+        size = channel.size();
+        partition = day;
+        segment = next;
+        LocalDate oldest = day.minusDays(retentionDays);
+        for (Map.Entry<LocalDate, TreeSet<Integer>> older : listPartitions().headMap(oldest).entrySet()) {
+            for (int number : older.getValue()) {
+                Files.deleteIfExists(partitionFile(older.getKey(), number, LOG_SUFFIX));
+                Files.deleteIfExists(partitionFile(older.getKey(), number, INDEX_SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Gets the state of a segment's index.
+     *
+     * @param day    The day of the partition.
+     * @param number The number of the segment.
+     * @return INDEX_APPENDING or INDEX_SEALED, or -1 if the segment has no index or its index is not readable.
+     * @throws IOException If the index could not be read.
+     */
+    private int indexState(LocalDate day, int number) throws IOException {
+        Path indexFile = partitionFile(day, number, INDEX_SUFFIX);
+        if (!Files.isRegularFile(indexFile)) {
+            return -1;
+        }
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+            while (header.hasRemaining() && index.read(header) > 0) {
+                // Keep reading until the whole header is in the buffer
+            }
+            header.flip();
+            return header.remaining() == INDEX_HEADER_BYTES && header.getInt() == INDEX_MAGIC ? header.getInt() : -1;
+        }
+    }
+
+    /**
+     * Seals the index of a closed segment by sorting its entries by member hash, keeping the entries of a member in the order they were
+     * written.
+     * <p>
+     * The sorted index is written to a temporary file first and then moved over the index, so a failed seal leaves the index appending.
+     *
+     * @param day    The day of the partition.
+     * @param number The number of the segment.
+     * @throws IOException If the index could not be sealed.
+     */
+    private void seal(LocalDate day, int number) throws IOException {
+        Path indexFile = partitionFile(day, number, INDEX_SUFFIX);
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        int count = (entries.capacity() - INDEX_HEADER_BYTES) / INDEX_ENTRY_BYTES;
+        if (count < 0 || entries.getInt(0) != INDEX_MAGIC) {
+            return; // Not an index written by the audit log
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        // The sort is stable and entries were appended in offset order, so ties on the hash stay in offset order
+        Arrays.sort(order, (a, b) -> Long.compare(entries.getLong(INDEX_HEADER_BYTES + a * INDEX_ENTRY_BYTES), entries.getLong(INDEX_HEADER_BYTES + b * INDEX_ENTRY_BYTES)));
+        ByteBuffer sorted = ByteBuffer.allocate(INDEX_HEADER_BYTES + count * INDEX_ENTRY_BYTES);
+        sorted.putInt(INDEX_MAGIC).putInt(INDEX_SEALED);
+        for (int i : order) {
+            sorted.put(entries.array(), INDEX_HEADER_BYTES + i * INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES);
+        }
+        sorted.flip();
+        Path temp = partitionFile(day, number, INDEX_SUFFIX + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, sorted);
+            out.force(false);
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Hashes a case-folded member name into the key of its index entries, using 64-bit FNV-1a.
+     *
+     * @param memberKey The case-folded name of the member.
+     * @return The hash of the name.
+     */
+    private static long hash(String memberKey) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < memberKey.length(); i++) {
+            hash = (hash ^ memberKey.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Lists the segments of every partition in the store.
+     *
+     * @return The segment numbers of each partition in ascending order, keyed by the day of the partition in ascending order. A partition
+     *         written before segments has the single segment number UNNUMBERED.
+     * @throws IOException If the directory could not be listed.
+     */
+    private TreeMap<LocalDate, TreeSet<Integer>> listPartitions() throws IOException {
+        TreeMap<LocalDate, TreeSet<Integer>> partitions = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return partitions;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PARTITION_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String stem = name.substring(PARTITION_PREFIX.length(), name.length() - LOG_SUFFIX.length());
+                int dot = stem.indexOf('.');
+                try {
+                    LocalDate day = LocalDate.parse(dot < 0 ? stem : stem.substring(0, dot));
+                    int number = dot < 0 ? UNNUMBERED : Integer.parseInt(stem.substring(dot + 1));
+                    if (number >= UNNUMBERED) {
+                        partitions.computeIfAbsent(day, key -> new TreeSet<>()).add(number);
+                    }
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    // Not a partition written by the audit log
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Reads every event in a segment of a partition.
+     * <p>
+     * A line cut short by a crash is skipped.
+     *
+     * @param day    The day of the partition.
+     * @param number The number of the segment.
+     * @return The events in the order they were written.
+     * @throws IOException If the segment could not be read.
+     */
+    private List<AuditEvent> readSegment(LocalDate day, int number) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(partitionFile(day, number, LOG_SUFFIX), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    events.add(AuditEvent.parse(line));
+                } catch (IllegalArgumentException e) {
+                    // Partial line left by a crash
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads the events of one member in a segment of a partition by looking their offsets up in the segment's index.
+     * <p>
+     * A sealed index is binary searched for the member's run of entries. The open segment's index is scanned. A segment whose index
+     * cannot be read is read in full, since the query checks the member of every event anyway.
+     *
+     * @param day       The day of the partition.
+     * @param number    The number of the segment.
+     * @param memberKey The case-folded name of the member.
+     * @return The member's events in the order they were written, and possibly events of members whose names share the hash.
+     * @throws IOException If the segment could not be read.
+     */
+    private List<AuditEvent> readIndexed(LocalDate day, int number, String memberKey) throws IOException {
+        if (number == UNNUMBERED) {
+            return readUnnumberedIndexed(day, memberKey);
+        }
+        int state = indexState(day, number);
+        if (state != INDEX_APPENDING && state != INDEX_SEALED) {
+            return readSegment(day, number);
+        }
+        long key = hash(memberKey);
+        List<AuditEvent> events = new ArrayList<>();
+        try (FileChannel index = FileChannel.open(partitionFile(day, number, INDEX_SUFFIX), StandardOpenOption.READ);
+                FileChannel log = FileChannel.open(partitionFile(day, number, LOG_SUFFIX), StandardOpenOption.READ)) {
+            long count = (index.size() - INDEX_HEADER_BYTES) / INDEX_ENTRY_BYTES;
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+            long first = 0;
+            if (state == INDEX_SEALED) {
+                // Find the first entry of the member's run
+                long high = count;
+                while (first < high) {
+                    long middle = (first + high) >>> 1;
+                    if (readEntry(index, middle, entry).getLong() < key) {
+                        first = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+            }
+            for (long i = first; i < count; i++) {
+                long entryKey = readEntry(index, i, entry).getLong();
+                if (entryKey != key) {
+                    if (state == INDEX_SEALED) {
+                        break; // End of the member's run
+                    }
+                    continue;
+                }
+                try {
+                    events.add(readEvent(log, entry.getLong(), entry.getInt()));
+                } catch (IllegalArgumentException e) {
+                    // Event left partial by a crash
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads an entry of a segment's index.
+     *
+     * @param index The channel of the index.
+     * @param i     The position of the entry.
+     * @param entry The buffer to read the entry into, positioned at the member hash on return.
+     * @return The entry buffer.
+     * @throws IOException If the entry could not be read.
+     */
+    private static ByteBuffer readEntry(FileChannel index, long i, ByteBuffer entry) throws IOException {
+        entry.clear();
+        long position = INDEX_HEADER_BYTES + i * INDEX_ENTRY_BYTES;
+        while (entry.hasRemaining() && index.read(entry, position + entry.position()) > 0) {
+            // Keep reading until the whole entry is in the buffer
+        }
+        entry.flip();
+        if (entry.remaining() < INDEX_ENTRY_BYTES) {
+            throw new IOException("Audit log index entry is truncated.");
+        }
+        return entry;
+    }
+
+    /**
+     * Reads an event from a segment by its offset and length.
+     *
+     * @param log    The channel of the segment's events.
+     * @param offset The offset of the event.
+     * @param length The length of the event in bytes.
+     * @return The event.
+     * @throws IOException              If the event could not be read.
+     * @throws IllegalArgumentException If the bytes read are not an event.
+     */
+    private static AuditEvent readEvent(FileChannel log, long offset, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining() && log.read(bytes, offset + bytes.position()) > 0) {
+            // Keep reading until the whole event is in the buffer
+        }
+        bytes.flip();
+        return AuditEvent.parse(StandardCharsets.UTF_8.decode(bytes).toString());
+    }
+
+    /**
+     * Reads the events of one member in a partition written before segments by scanning its text index, which maps each member to
+     * the offsets of their events.
+     *
+     * @param day       The day of the partition.
+     * @param memberKey The case-folded name of the member.
+     * @return The member's events in the order they were written.
+     * @throws IOException If the partition could not be read.
+     */
+    private List<AuditEvent> readUnnumberedIndexed(LocalDate day, String memberKey) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        Path indexFile = partitionFile(day, UNNUMBERED, INDEX_SUFFIX);
+        if (!Files.isRegularFile(indexFile)) {
+            return events;
+        }
+        try (BufferedReader index = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8);
+                FileChannel log = FileChannel.open(partitionFile(day, UNNUMBERED, LOG_SUFFIX), StandardOpenOption.READ)) {
+            String line;
+            while ((line = index.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 3 || !parts[0].equals(memberKey)) {
+                    continue;
+                }
+                try {
+                    events.add(readEvent(log, Long.parseLong(parts[1]), Integer.parseInt(parts[2])));
+                } catch (IllegalArgumentException e) {
+                    // Partial index entry or event left by a crash
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Gets the path of a file of a segment of a partition.
+     *
+     * @param day    The day of the partition.
+     * @param number The number of the segment, or UNNUMBERED for a partition written before segments.
+     * @param suffix The suffix of the file.
+     * @return The path of the file.
+     */
+    private Path partitionFile(LocalDate day, int number, String suffix) {
+        return directory.resolve(PARTITION_PREFIX + day + (number == UNNUMBERED ? "" : "." + number) + suffix);
+    }
+
+    /**
+     * Gets the local day a time falls on.
+     *
+     * @param epochMillis The time in milliseconds since the epoch.
+     * @return The day in the local time zone.
+     */
+    private static LocalDate dayOf(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
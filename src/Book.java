@@ -1,18 +1,34 @@
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 
 /**
- * Represents a book with title, author, and ISBN information.
+ * Represents a book with title, author, and ISBN information, and the physical copies of it held by the library.
+ * <p>
+ * The bibliographic record is shared by all copies. The state of each copy is kept in a primitive array indexed by copy, so a title
+ * with many copies costs one set of strings plus a byte per copy, and the number of available copies is a counter read. The borrower,
+ * due date and overdue and notification states of borrowed copies live in the loan table of the library, keyed by book id and copy,
+ * so a book must be added to the library before its copies can be lent.
+ * Only the title is held as a string of its own: authors are dictionary-encoded in a pool shared by all books, and the ISBN is packed
+ * into a long.
  */
 public class Book {
+    private static final byte AVAILABLE = 0; // Copy state of a copy on the shelf
+    private static final byte ON_LOAN = 1; // Copy state of a borrowed copy
+    private static final byte WITHDRAWN = 2; // Copy state of a copy no longer held by the library
+    private static final StringPool AUTHORS = new StringPool(); // Author names shared by all books
+
     private String title; // The title of the book.
-    private String author; // The author of the book.
-    private String isbn; // The ISBN of the book.
-    private boolean isAvailable = true; // Indicates whether the book is available or not.
-    private LocalDateTime bookReturnDueDate; // The due date for returning the book.
-    private int overDueState = 0; // Tracks the number of times the book is overdue.
-    private int notificationState = 0; // Tracks the notification state for the book.
-    private String memberEmail; // The email of the member who borrowed the book.
+    private int author; // The code of the author of the book in the author pool.
+    private long isbn; // The packed ISBN of the book.
+    private int id; // The id assigned to the book by the library.
+    private LoanTable loans; // The loan table of the library holding the book, null until the book is added.
+
+    // Per-copy state, one slot per copy and guarded by this
+    private int copySlots = 0; // Number of slots in use, including withdrawn copies.
+    private byte[] states = new byte[1]; // The state of each copy.
+    private volatile int heldCopies = 0; // Number of copies held by the library.
+    private volatile int availableCopies = 0; // Number of copies on the shelf.
 
     /**
      * Constructs a new Book object with the specified title, author, and ISBN.
@@ -20,13 +36,9 @@ public class Book {
      * @param title  The title of the book.
      * @param author The author of the book.
      * @param isbn   The ISBN of the book.
-     * @throws IllegalArgumentException if the title, author, or ISBN is empty.
+     * @throws IllegalArgumentException if the title, author, or ISBN is empty, or the ISBN is not valid.
      */
     public Book(String title, String author, String isbn) {
-        this.title = title;
-        this.author = author;
-        this.isbn = isbn;
-
         if (title.equals("")) {
             throw new IllegalArgumentException("The title of the book was not provided.");
         }
@@ -38,32 +50,10 @@ public class Book {
         if (isbn.equals("")) {
             throw new IllegalArgumentException("The ISBN of the book was not provided.");
         }
-    }
-
-    /**
-     * Constructs a new Book object with the specified title, author, ISBN, availability status,
-     * return due date, overdue state, notification state, and member email.
-     *
-     * @param title             The title of the book.
-     * @param author            The author of the book.
-     * @param isbn              The ISBN of the book.
-     * @param isAvailable       Indicates whether the book is available or not.
-     * @param bookReturnDueDate The due date for returning the book.
-     * @param overDueState      Tracks the number of times the book is overdue.
-     * @param notificationState Tracks the notification state for the book.
-     * @param memberEmail       The email of the member who borrowed the book.
-     */
-    public Book(String title, String author, String isbn, boolean isAvailable,
-            LocalDateTime bookReturnDueDate, int overDueState, int notificationState,
-            String memberEmail) {
         this.title = title;
-        this.author = author;
-        this.isbn = isbn;
-        this.isAvailable = isAvailable;
-        this.bookReturnDueDate = bookReturnDueDate;
-        this.overDueState = overDueState;
-        this.notificationState = notificationState;
-        this.memberEmail = memberEmail;
+        this.author = AUTHORS.encode(author);
+        this.isbn = packIsbn(isbn);
+        addCopy();
     }
 
     /**
@@ -81,116 +71,385 @@ public class Book {
      * @return The author of the book.
      */
     public String getAuthor() {
-        return author;
+        return AUTHORS.decode(author);
     }
 
     /**
      * Gets the ISBN of the book.
      * 
-     * @return The ISBN of the book.
+     * @return The normalized ISBN of the book, without hyphens or whitespace.
      */
     public String getIsbn() {
+        return Isbn.unpack(isbn);
+    }
+
+    /**
+     * Gets the packed ISBN of the book, which the library keys its books by.
+     * 
+     * @return The ISBN packed by Isbn.pack.
+     */
+    public long getPackedIsbn() {
         return isbn;
     }
 
     /**
-     * Checks if the book is available.
+     * Gets the id assigned to the book by the library.
      * 
-     * @return true if the book is available, otherwise false.
+     * @return The id of the book, ordering books by when they were added.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Attaches the book to a library, assigning its id and the loan table its borrowed copies are recorded in.
+     * 
+     * @param id    The id of the book, at least 1.
+     * @param loans The loan table of the library.
+     */
+    synchronized void attach(int id, LoanTable loans) {
+        this.id = id;
+        this.loans = loans;
+    }
+
+    /**
+     * Checks if at least one copy of the book is available.
+     * 
+     * @return true if a copy of the book is available, otherwise false.
      */
     public boolean isAvailable() {
-        return isAvailable;
+        return availableCopies > 0;
+    }
+
+    /**
+     * Gets the number of copies of the book on the shelf.
+     * 
+     * @return The number of available copies.
+     */
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+
+    /**
+     * Gets the number of copies of the book held by the library, on the shelf or on loan.
+     * 
+     * @return The number of copies held.
+     */
+    public int getCopyCount() {
+        return heldCopies;
     }
 
     /**
-     * Toggles the availability status of the book.
+     * Gets the number of copy slots, including withdrawn copies, for iterating over the copies by index.
+     * 
+     * @return The number of copy slots.
      */
-    public void toggleAvailability() {
-        this.isAvailable = !this.isAvailable;
+    public synchronized int getCopySlots() {
+        return copySlots;
     }
 
     /**
-     * Sets the email of the member who borrowed the book.
+     * Adds an available copy of the book.
      * 
-     * @param email The email of the member.
+     * @return The index of the new copy.
      */
-    public void setMemberEmail(String email) {
-        memberEmail = email;
+    public synchronized int addCopy() {
+        if (copySlots == states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+        int copy = copySlots++;
+        states[copy] = AVAILABLE;
+        heldCopies++;
+        availableCopies++;
+        return copy;
     }
 
     /**
-     * Gets the email of the member who borrowed the book.
+     * Adds the copies held by another record of the same book that is not in the library.
+     * <p>
+     * Only a book in the library can lend copies, so the copies are added on the shelf.
      * 
-     * @return The email of the member.
+     * @param other The other record of the book.
+     * @return The index of the first copy added, or -1 if the other record holds no copies.
      */
-    public String getMemberEmail() {
-        return memberEmail;
+    public int addCopiesOf(Book other) {
+        int first = -1;
+        int slots = other.getCopySlots();
+        for (int copy = 0; copy < slots; copy++) {
+            if (!other.isWithdrawn(copy)) {
+                int added = addCopy();
+                first = first < 0 ? added : first;
+            }
+        }
+        return first;
     }
 
     /**
-     * Gets the due date for returning the book.
+     * Finds a copy of the book on the shelf.
      * 
-     * @return The due date for returning the book.
+     * @return The index of an available copy, or -1 if every copy is on loan.
      */
-    public LocalDateTime getBookReturnDueDate() {
-        return bookReturnDueDate;
+    public synchronized int findAvailableCopy() {
+        if (availableCopies == 0) {
+            return -1;
+        }
+        for (int copy = 0; copy < copySlots; copy++) {
+            if (states[copy] == AVAILABLE) {
+                return copy;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the copy of the book borrowed by a member.
+     * 
+     * @param memberId The id of the member.
+     * @return The index of the first copy on loan to the member, or -1 if the member has not borrowed a copy.
+     */
+    public synchronized int findCopyLentTo(int memberId) {
+        for (int copy = 0; copy < copySlots; copy++) {
+            if (states[copy] == ON_LOAN && loans.getMemberId(key(copy)) == memberId) {
+                return copy;
+            }
+        }
+        return -1;
     }
 
     /**
-     * Sets the return due date of the book.
+     * Checks if a copy of the book is available.
      * 
-     * @param dueDays The number of days until the book should be returned.
+     * @param copy The index of the copy.
+     * @return true if the copy is on the shelf, otherwise false.
      */
-    public void setBookReturnDueDate(int dueDays) {
-        bookReturnDueDate = LocalDateTime.now().plus(dueDays, ChronoUnit.DAYS);
+    public synchronized boolean isAvailable(int copy) {
+        return states[copy] == AVAILABLE;
     }
 
     /**
-     * Increments the overdue state of the book.
+     * Checks if a copy of the book is on loan.
      * 
+     * @param copy The index of the copy.
+     * @return true if the copy is borrowed, otherwise false.
+     */
+    public synchronized boolean isOnLoan(int copy) {
+        return states[copy] == ON_LOAN;
+    }
+
+    /**
+     * Checks if a copy of the book has been withdrawn.
+     * 
+     * @param copy The index of the copy.
+     * @return true if the copy is no longer held by the library, otherwise false.
+     */
+    public synchronized boolean isWithdrawn(int copy) {
+        return states[copy] == WITHDRAWN;
+    }
+
+    /**
+     * Lends an available copy of the book to a member.
+     * 
+     * @param copy              The index of the copy.
+     * @param memberId          The id of the member borrowing the copy.
+     * @param bookReturnDueDate The due date for returning the copy.
+     * @throws IllegalStateException If the copy is not available or the book is not in a library.
+     */
+    public synchronized void lendCopy(int copy, int memberId, LocalDateTime bookReturnDueDate) {
+        restoreLoan(copy, memberId, bookReturnDueDate, 0, 0);
+    }
+
+    /**
+     * Lends an available copy of the book with the loan state it had when the library was saved.
+     * 
+     * @param copy              The index of the copy.
+     * @param memberId          The id of the member who borrowed the copy, or 0 if the borrower is no longer known.
+     * @param bookReturnDueDate The due date for returning the copy.
+     * @param overDueState      Tracks the number of times the copy is overdue.
+     * @param notificationState Tracks the notification state for the copy.
+     * @throws IllegalStateException If the copy is not available or the book is not in a library.
+     */
+    synchronized void restoreLoan(int copy, int memberId, LocalDateTime bookReturnDueDate, int overDueState, int notificationState) {
+        if (states[copy] != AVAILABLE) {
+            throw new IllegalStateException("Copy is not available for checkout.");
+        }
+        if (loans == null) {
+            throw new IllegalStateException("Book is not in the library.");
+        }
+        long dueEpoch = bookReturnDueDate == null ? LoanTable.NO_DUE_DATE : bookReturnDueDate.toEpochSecond(ZoneOffset.UTC);
+        loans.put(key(copy), memberId, dueEpoch, overDueState, notificationState);
+        states[copy] = ON_LOAN;
+        availableCopies--;
+    }
+
+    /**
+     * Puts a borrowed copy of the book back on the shelf and resets its loan state.
+     * 
+     * @param copy The index of the copy.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public synchronized void returnCopy(int copy) {
+        if (states[copy] != ON_LOAN) {
+            throw new IllegalStateException("Copy is not borrowed.");
+        }
+        loans.remove(key(copy));
+        states[copy] = AVAILABLE;
+        availableCopies++;
+    }
+
+    /**
+     * Withdraws a copy of the book, for example when it has not been returned.
+     * 
+     * @param copy The index of the copy.
+     */
+    public synchronized void withdrawCopy(int copy) {
+        if (states[copy] == WITHDRAWN) {
+            return;
+        }
+        if (states[copy] == AVAILABLE) {
+            availableCopies--;
+        } else {
+            loans.remove(key(copy));
+        }
+        states[copy] = WITHDRAWN;
+        heldCopies--;
+    }
+
+    /**
+     * Gets the id of the member who borrowed a copy of the book.
+     * 
+     * @param copy The index of the copy.
+     * @return The id of the member, or 0 if the copy is not on loan.
+     */
+    public int getMemberId(int copy) {
+        LoanTable table = loans();
+        return table == null ? LoanTable.NO_MEMBER : table.getMemberId(key(copy));
+    }
+
+    /**
+     * Gets the due date for returning a copy of the book.
+     * 
+     * @param copy The index of the copy.
+     * @return The due date for returning the copy, or null if it is not on loan.
+     */
+    public LocalDateTime getBookReturnDueDate(int copy) {
+        LoanTable table = loans();
+        long dueEpoch = table == null ? LoanTable.NO_DUE_DATE : table.getDueEpoch(key(copy));
+        return dueEpoch == LoanTable.NO_DUE_DATE ? null : LocalDateTime.ofEpochSecond(dueEpoch, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Sets the return due date of a borrowed copy of the book to a specific date.
+     * <p>
+     * Due dates are stored to the second, which is the precision they are persisted with.
+     * 
+     * @param copy    The index of the copy.
+     * @param dueDate The date by which the copy should be returned.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public void setBookReturnDueDate(int copy, LocalDateTime dueDate) {
+        borrowedFrom().setDueEpoch(key(copy), dueDate.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Increments the overdue state of a borrowed copy of the book.
+     * 
+     * @param copy The index of the copy.
      * @return The updated overdue state.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public int incrementOverDueState(int copy) {
+        return borrowedFrom().incrementOverDueState(key(copy));
+    }
+
+    /**
+     * Extends the loan of a borrowed copy of the book that has come due, incrementing its overdue state and setting a new due date.
+     * 
+     * @param copy    The index of the copy.
+     * @param dueDate The extended due date, stored to the second.
+     * @return The updated overdue state.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public int extendLoan(int copy, LocalDateTime dueDate) {
+        return borrowedFrom().extend(key(copy), dueDate.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Gets the overdue state of a copy of the book.
+     * 
+     * @param copy The index of the copy.
+     * @return The overdue state of the copy, 0 if it is not on loan.
+     */
+    public int getOverDueState(int copy) {
+        LoanTable table = loans();
+        return table == null ? 0 : table.getOverDueState(key(copy));
+    }
+
+    /**
+     * Increments the notification state of a borrowed copy of the book.
+     * 
+     * @param copy The index of the copy.
+     * @throws IllegalStateException If the copy is not on loan.
      */
-    public int incrementOverDueState() {
-        overDueState++;
-        return overDueState;
+    public void incrementNotificationState(int copy) {
+        borrowedFrom().incrementNotificationState(key(copy));
     }
 
     /**
-     * Resets the overdue state of the book to zero.
+     * Gets the notification state of a copy of the book.
+     * 
+     * @param copy The index of the copy.
+     * @return The notification state of the copy, 0 if it is not on loan.
      */
-    public void resetOverDueState() {
-        overDueState = 0;
+    public int getNotificationState(int copy) {
+        LoanTable table = loans();
+        return table == null ? 0 : table.getNotificationState(key(copy));
     }
 
     /**
-     * Gets the overdue state of the book.
+     * Gets the loan table the book is attached to.
      * 
-     * @return The overdue state of the book.
+     * @return The loan table of the library holding the book, or null if it is not in a library.
      */
-    public int getOverDueState() {
-        return overDueState;
+    private synchronized LoanTable loans() {
+        return loans;
     }
 
     /**
-     * Increments the notification state of the book.
+     * Gets the loan table holding the borrowed copies of the book.
+     * 
+     * @return The loan table of the library holding the book.
+     * @throws IllegalStateException If the book is not in a library, so none of its copies is on loan.
      */
-    public void incrementNotificationState() {
-        notificationState++;
+    private LoanTable borrowedFrom() {
+        LoanTable table = loans();
+        if (table == null) {
+            throw new IllegalStateException("Copy is not borrowed.");
+        }
+        return table;
     }
 
     /**
-     * Gets the notification state of the book.
+     * Gets the key of a copy of the book in the loan table.
      * 
-     * @return The notification state of the book.
+     * @param copy The index of the copy.
+     * @return The key of the copy.
      */
-    public int getNotificationState() {
-        return notificationState;
+    private long key(int copy) {
+        return LoanTable.key(id, copy);
     }
 
     /**
-     * Resets the notification state of the book to zero.
+     * Packs an ISBN for storage.
+     * 
+     * @param isbn The ISBN.
+     * @return The packed ISBN.
+     * @throws IllegalArgumentException If the ISBN is not valid.
      */
-    public void resetNotificationState() {
-        notificationState = 0;
+    private static long packIsbn(String isbn) {
+        long packed = Isbn.pack(isbn);
+        if (packed == Isbn.INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN " + isbn + ". An ISBN is made of digits, optionally ending in X.");
+        }
+        return packed;
     }
 }
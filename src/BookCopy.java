@@ -0,0 +1,109 @@
+import java.time.LocalDateTime;
+
+/**
+ * Refers to one physical copy of a book by its index among the book's copies.
+ * <p>
+ * A BookCopy holds no loan state of its own, it reads the state from the book and the loan table of the library.
+ * Two references to the same copy of the same book are equal, so a BookCopy can be kept in the loans of a member.
+ */
+public class BookCopy {
+    private Book book; // The book the copy belongs to
+    private int copy; // The index of the copy within the book
+
+    /**
+     * Constructs a BookCopy referring to a copy of a book.
+     * 
+     * @param book The book the copy belongs to.
+     * @param copy The index of the copy within the book.
+     */
+    public BookCopy(Book book, int copy) {
+        this.book = book;
+        this.copy = copy;
+    }
+
+    /**
+     * Gets the book the copy belongs to.
+     * 
+     * @return The book.
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * Gets the index of the copy within the book.
+     * 
+     * @return The index of the copy.
+     */
+    public int getCopy() {
+        return copy;
+    }
+
+    /**
+     * Checks if the copy is available.
+     * 
+     * @return true if the copy is on the shelf, otherwise false.
+     */
+    public boolean isAvailable() {
+        return book.isAvailable(copy);
+    }
+
+    /**
+     * Gets the due date for returning the copy.
+     * 
+     * @return The due date for returning the copy, or null if it is not on loan.
+     */
+    public LocalDateTime getBookReturnDueDate() {
+        return book.getBookReturnDueDate(copy);
+    }
+
+    /**
+     * Gets the overdue state of the copy.
+     * 
+     * @return The number of times the copy is overdue.
+     */
+    public int getOverDueState() {
+        return book.getOverDueState(copy);
+    }
+
+    /**
+     * Gets the notification state of the copy.
+     * 
+     * @return The notification state of the copy.
+     */
+    public int getNotificationState() {
+        return book.getNotificationState(copy);
+    }
+
+    /**
+     * Gets the id of the member who borrowed the copy.
+     * 
+     * @return The id of the member, or 0 if the copy is not on loan.
+     */
+    public int getMemberId() {
+        return book.getMemberId(copy);
+    }
+
+    /**
+     * Checks whether another object refers to the same copy of the same book.
+     * 
+     * @param other The object to compare to.
+     * @return true if the other object refers to the same copy.
+     */
+    public boolean equals(Object other) {
+        if (!(other instanceof BookCopy)) {
+            return false;
+        }
+        BookCopy that = (BookCopy) other;
+        return book == that.book && copy == that.copy;
+    }
+
+    /**
+     * Gets a hash code consistent with equals.
+     * 
+     * @return The hash code of the copy reference.
+     */
+    public int hashCode() {
+        return 31 * System.identityHashCode(book) + copy;
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports books in bulk from a CSV file with title, author and ISBN columns.
+ * <p>
+ * The file is streamed in chunks of lines that are parsed in parallel, with only a few chunks in flight at a time.
+ * Every record is validated by the Book constructor, records repeating an ISBN seen earlier in the file are dropped,
+ * and the remaining books are added to the library in a single commit. Invalid records are reported without stopping the import.
+ */
+public class CatalogueImport {
+    private static final int CHUNK_LINES = 10000; // Number of lines parsed together
+    private static final int MAX_PENDING_CHUNKS = 2 * Runtime.getRuntime().availableProcessors(); // Chunks read ahead of the merge
+
+    private Library library; // Library the books are imported into
+    private List<String> errors = new ArrayList<>(); // Records that were not imported and why
+    private int imported = 0; // Number of books imported
+
+    /**
+     * Constructs a CatalogueImport into the specified library.
+     *
+     * @param library The library to import the books into.
+     */
+    public CatalogueImport(Library library) {
+        this.library = library;
+    }
+
+    /**
+     * Imports the books in a CSV file.
+     * <p>
+     * A first line starting with a "title" column is treated as a header. Columns after the ISBN are ignored.
+     *
+     * @param file The file path of the CSV file.
+     * @return The number of books imported.
+     * @throws IOException If the file could not be read.
+     */
+    public int importFile(String file) throws IOException {
+        List<Book> batch = new ArrayList<>();
+        Map<Long, Integer> firstLines = new HashMap<>(); // Line each packed ISBN in the batch was read from
+        Deque<Future<ParsedChunk>> pending = new ArrayDeque<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            int firstLine = 1;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line)) {
+                    firstLine = 2;
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == CHUNK_LINES) {
+                    pending.add(submit(chunk, firstLine));
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                    firstLine = lineNumber + 1;
+                    if (pending.size() >= MAX_PENDING_CHUNKS) {
+                        merge(pending.poll(), batch, firstLines);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                pending.add(submit(chunk, firstLine));
+            }
+            while (!pending.isEmpty()) {
+                merge(pending.poll(), batch, firstLines);
+            }
+        } finally {
+            for (Future<ParsedChunk> future : pending) {
+                future.cancel(true);
+            }
+        }
+
+        // Commit the whole batch at once and report the books that were already in the library
+        List<Book> rejected = library.addBooks(batch);
+        for (Book book : rejected) {
+            errors.add("Line " + firstLines.get(book.getPackedIsbn()) + ": Book with ISBN " + book.getIsbn() + " already in library.");
+        }
+        imported = batch.size() - rejected.size();
+        return imported;
+    }
+
+    /**
+     * Lists the records that were not imported and why.
+     *
+     * @return The errors, one per rejected record.
+     */
+    public List<String> listErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the number of books imported.
+     *
+     * @return The number of books imported.
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * Submits a chunk of lines to be parsed in parallel.
+     *
+     * @param lines     The lines of the chunk.
+     * @param firstLine The line number of the first line.
+     * @return The future parsed chunk.
+     */
+    private static Future<ParsedChunk> submit(List<String> lines, int firstLine) {
+        return ForkJoinPool.commonPool().submit(() -> parse(lines, firstLine));
+    }
+
+    /**
+     * Waits for a parsed chunk and adds its books to the batch, dropping ISBNs already in the batch.
+     *
+     * @param future     The future parsed chunk.
+     * @param batch      The books to be imported.
+     * @param firstLines The line each packed ISBN in the batch was read from.
+     * @throws IllegalStateException If parsing failed unexpectedly or the import was interrupted.
+     */
+    private void merge(Future<ParsedChunk> future, List<Book> batch, Map<Long, Integer> firstLines) {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        errors.addAll(chunk.errors);
+        for (int i = 0; i < chunk.books.size(); i++) {
+            Book book = chunk.books.get(i);
+            int line = chunk.lineNumbers[i];
+            Integer earlier = firstLines.putIfAbsent(book.getPackedIsbn(), line);
+            if (earlier == null) {
+                batch.add(book);
+            } else {
+                errors.add("Line " + line + ": Duplicate ISBN " + book.getIsbn() + ", first seen on line " + earlier + ".");
+            }
+        }
+    }
+
+    /**
+     * Parses a chunk of lines into books.
+     *
+     * @param lines     The lines of the chunk.
+     * @param firstLine The line number of the first line.
+     * @return The books parsed and the errors of the records that could not be parsed.
+     */
+    private static ParsedChunk parse(List<String> lines, int firstLine) {
+        ParsedChunk chunk = new ParsedChunk(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                List<String> fields = fields(line);
+                if (fields.size() < 3) {
+                    throw new IllegalArgumentException("Expected title, author and ISBN.");
+                }
+                chunk.lineNumbers[chunk.books.size()] = firstLine + i;
+                chunk.books.add(new Book(fields.get(0), fields.get(1), fields.get(2)));
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add("Line " + (firstLine + i) + ": " + e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Splits a CSV line into trimmed fields, honouring double-quoted fields with doubled quotes.
+     *
+     * @param line The line to split.
+     * @return The fields of the line.
+     * @throws IllegalArgumentException If a quoted field is not closed on the same line.
+     */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.toString().isBlank()) {
+                field.setLength(0);
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Checks if a line is a header naming the title column.
+     *
+     * @param line The first line of the file.
+     * @return True if the line is a header.
+     */
+    private static boolean isHeader(String line) {
+        try {
+            return fields(line).get(0).equalsIgnoreCase("title");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Holds the books parsed from one chunk together with their line numbers and the errors found.
+     */
+    private static class ParsedChunk {
+        private List<Book> books; // Books parsed, in file order
+        private int[] lineNumbers; // Line number of each book parsed
+        private List<String> errors = new ArrayList<>(); // Records that could not be parsed and why
+
+        /**
+         * Constructs an empty ParsedChunk for the specified number of lines.
+         *
+         * @param lines The number of lines in the chunk.
+         */
+        private ParsedChunk(int lines) {
+            books = new ArrayList<>(lines);
+            lineNumbers = new int[lines];
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.List;
+
+/**
+ * Sends overdue and hold notifications by printing the email to the console.
+ */
+public class ConsoleNotificationSender implements NotificationSender {
+    /**
+     * Prints an email notification to the member regarding the overdue books and associated fines.
+     *
+     * @param member The member to notify.
+     * @param books  The overdue books of the member.
+     */
+    public void send(Member member, List<Book> books) {
+        StringBuilder titles = new StringBuilder();
+        for (Book book : books) {
+            if (titles.length() > 0) {
+                titles.append(", ");
+            }
+            titles.append(book.getTitle());
+        }
+        String noun = books.size() == 1 ? "book" : "books";
+        System.out.println("Email: " + member.getEmail() + " Please return the " + noun + ": " + titles + " and pay your fine of R" + member.getFines() + ".");
+    }
+
+    /**
+     * Prints an email notification to the member that the books they placed a hold on are ready for collection.
+     *
+     * @param member The member to notify.
+     * @param books  The books checked out to the member from their holds.
+     */
+    public void sendHoldReady(Member member, List<Book> books) {
+        StringBuilder titles = new StringBuilder();
+        for (Book book : books) {
+            if (titles.length() > 0) {
+                titles.append(", ");
+            }
+            titles.append(book.getTitle());
+        }
+        String noun = books.size() == 1 ? "book" : "books";
+        System.out.println("Email: " + member.getEmail() + " The " + noun + " you placed a hold on " + (books.size() == 1 ? "is" : "are") + " ready for collection: " + titles + ".");
+    }
+}
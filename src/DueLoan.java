@@ -0,0 +1,96 @@
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a loan that comes due at a specific date, ordered by that date in the library's due loan queue.
+ * <p>
+ * Entries are never updated in place. Returning a book or extending its due date leaves the old entry to be discarded when it comes due.
+ */
+public class DueLoan implements Delayed {
+    private BookCopy copy; // The borrowed copy
+    private Member member; // The member who borrowed the book
+    private LocalDateTime dueDate; // The due date this entry was queued for
+
+    /**
+     * Constructs a DueLoan for a copy borrowed by a member until the specified due date.
+     * 
+     * @param copy    The borrowed copy.
+     * @param member  The member who borrowed the copy.
+     * @param dueDate The due date for returning the copy.
+     */
+    public DueLoan(BookCopy copy, Member member, LocalDateTime dueDate) {
+        this.copy = copy;
+        this.member = member;
+        this.dueDate = dueDate;
+    }
+
+    /**
+     * Gets the borrowed copy.
+     * 
+     * @return The borrowed copy.
+     */
+    public BookCopy getCopy() {
+        return copy;
+    }
+
+    /**
+     * Gets the book of the borrowed copy.
+     * 
+     * @return The borrowed book.
+     */
+    public Book getBook() {
+        return copy.getBook();
+    }
+
+    /**
+     * Gets the member who borrowed the book.
+     * 
+     * @return The member who borrowed the book.
+     */
+    public Member getMember() {
+        return member;
+    }
+
+    /**
+     * Gets the due date this entry was queued for.
+     * 
+     * @return The due date for returning the book.
+     */
+    public LocalDateTime getDueDate() {
+        return dueDate;
+    }
+
+    /**
+     * Checks whether the entry still describes the current loan of the copy.
+     * 
+     * @return true if the copy has not been returned and its due date has not been extended since the entry was queued.
+     */
+    public boolean isCurrent() {
+        return copy.getBook().isOnLoan(copy.getCopy()) && dueDate.equals(copy.getBookReturnDueDate());
+    }
+
+    /**
+     * Gets the time remaining until the loan comes due.
+     * 
+     * @param unit The unit to express the delay in.
+     * @return The remaining delay, zero or negative once the loan is due.
+     */
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(ChronoUnit.NANOS.between(LocalDateTime.now(), dueDate), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Orders loans by due date.
+     * 
+     * @param other The loan to compare to.
+     * @return A negative number, zero or a positive number if this loan comes due before, with or after the other.
+     */
+    public int compareTo(Delayed other) {
+        if (other instanceof DueLoan) {
+            return dueDate.compareTo(((DueLoan) other).dueDate);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
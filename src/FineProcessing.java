@@ -1,61 +1,272 @@
-import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Manages fines for overdue books in the library system.
+ * <p>
+ * Loans are taken from the library's due loan queue in due date order, so only loans that have actually come due are processed,
+ * and the scheduler runs the sweep again when the next loan comes due.
+ * <p>
+ * A large backlog, such as the loans that all come due after a long weekend, is split into slices fined in parallel on the fork-join
+ * pool. The slices record the outcome of each loan in arrays shared by the sweep, so they contend for nothing but the book locks, and
+ * the sweep then queues the extended loans, logs the fines and publishes their notifications in batches.
  */
-public class FineProcessing implements Runnable {
-    private Map<Book, Member> borrowedBooks; // Map of borrowed books and corresponding members
+public class FineProcessing {
+    private BlockingQueue<DueLoan> dueLoans; // Queue of loans ordered by due date
     private Library library; // Reference to the library
+    private NotificationProcessing notifications; // Notification processing module that overdue events are published to
+    private int parallelThreshold; // Due loans in a batch from which the batch is swept in parallel
+    private LatencyHistogram sweepTimes; // Time taken by each sweep of the due loans
+    private LongAdder finesCharged; // Fines charged to members
+    private LongAdder copiesWithdrawn; // Copies removed for being excessively overdue
 
     public final static int DUEDAYS = 14; // Default days before a book is considered overdue
     public final static int MAXOVERDUEDAYS = 5; // Maximum days a book can be overdue before removal
     public final static int FINEPERDAY = 50; // Fine amount per overdue day
+    public final static int PARALLEL_THRESHOLD = 4096; // Default due loans in a batch from which the batch is swept in parallel
+
+    private static final int MAX_BATCH = 65536; // Most due loans taken from the queue and swept at once
+    private static final int MIN_SLICE = 256; // Fewest due loans swept by one fork-join task
+    private static final int SLICES_PER_THREAD = 4; // Slices per pool thread, so threads that finish early can take over work
+    private static final byte SKIPPED = 0; // Outcome of a loan returned or extended before it was swept
+    private static final byte FINED = 1; // Outcome of a loan fined and extended
+    private static final byte WITHDRAWN = 2; // Outcome of a loan whose copy was withdrawn
+    private static final byte FAILED = 3; // Outcome of a loan that could not be processed
+
+    /**
+     * Initializes FineProcessing with a library reference and the notification processing module to publish overdue events to.
+     */
+    public FineProcessing(Library library, NotificationProcessing notifications) {
+        this(library, notifications, PARALLEL_THRESHOLD);
+    }
 
     /**
-     * Initializes FineProcessing with a library reference.
+     * Initializes FineProcessing with a library reference, the notification processing module to publish overdue events to, and the
+     * size from which a batch of due loans is swept in parallel.
+     *
+     * @param library           The library whose due loans are processed.
+     * @param notifications     The notification processing module that overdue events are published to.
+     * @param parallelThreshold The number of due loans in a batch from which the batch is swept in parallel.
      */
-    public FineProcessing(Library library) {
+    public FineProcessing(Library library, NotificationProcessing notifications, int parallelThreshold) {
         this.library = library;
-        borrowedBooks = library.listBorrowedBooks(); // Get borrowed books
+        this.notifications = notifications;
+        this.parallelThreshold = parallelThreshold;
+        dueLoans = library.listDueLoans(); // Get loans ordered by due date
+        sweepTimes = library.getMetrics().histogram("fines.sweep");
+        finesCharged = library.getMetrics().counter("fines.charged");
+        copiesWithdrawn = library.getMetrics().counter("loans.withdrawn");
     }
 
     /**
-     * Main processing loop to manage fines for overdue books.
+     * Processes every loan that has come due and reports when the next loan comes due.
+     * <p>
+     * Run by the scheduler as a deadline job.
+     *
+     * @return The delay in milliseconds until the next loan comes due, or -1 if no loans are queued.
+     */
+    public long processDueLoans() {
+        fineManagement(); // Manage fines for every loan that has come due
+        DueLoan next = dueLoans.peek();
+        return next == null ? -1 : Math.max(0, next.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Manages fines for overdue books.
+     * <p>
+     * Processes every loan that has come due without waiting for loans that are not yet due. The due loans are taken from the queue in
+     * batches. Once a batch reaches the parallel threshold, it and the rest of the backlog are swept in parallel.
+     *
+     * @throws IllegalStateException If some due loans could not be processed. They are queued again to be retried by the next sweep.
      */
-    public void run() {
+    public void fineManagement() {
+        long start = System.nanoTime();
+        List<DueLoan> batch = new ArrayList<>();
+        List<DueLoan> failed = new ArrayList<>();
+        RuntimeException failure = null;
+        boolean parallel = false;
+        library.beginSweep();
         try {
-            Thread.sleep(1000); // Initial delay before processing
-            while (true) {
-                fineManagement(); // Manage fines for overdue books
-                Thread.sleep(1000 * 60); // Wait for 1 minute before next check
+            while (dueLoans.drainTo(batch, MAX_BATCH) > 0) {
+                parallel = parallel || batch.size() >= parallelThreshold;
+                RuntimeException batchFailure = sweep(batch, parallel, failed);
+                failure = batchFailure == null ? failure : batchFailure;
+                batch.clear();
             }
-        } catch (Exception e) {
-            e.printStackTrace(); // Log any exceptions during processing
+        } finally {
+            library.queueDueLoans(failed); // Retry the failed loans in the next sweep
+            library.finishSweep();
+        }
+        sweepTimes.recordSince(start);
+        if (failure != null) {
+            throw new IllegalStateException(failed.size() + " due loans could not be processed and will be retried: " + failure.getMessage(), failure);
         }
     }
 
     /**
-     * Manages fines for overdue books.
+     * Fines the members or removes the copies of a batch of loans that have come due, then queues, logs and notifies the outcomes.
+     * <p>
+     * A batch swept in the calling thread prints every fine. A batch swept in parallel prints a summary instead.
+     *
+     * @param batch    The loans that have come due, in due date order.
+     * @param parallel Whether to sweep the batch in parallel.
+     * @param failed   The list the loans that could not be processed are added to.
+     * @return The latest error that stopped a loan from being processed, or null if every loan was processed.
      */
-    public void fineManagement() {
-        for (Map.Entry<Book, Member> entry : borrowedBooks.entrySet()) {
-            Book book = entry.getKey();
-            Member member = entry.getValue();
-            LocalDateTime dueDate = book.getBookReturnDueDate();
-            LocalDateTime todayDate = LocalDateTime.now();
-            if (todayDate.isAfter(dueDate)) { // Book is overdue
-                if (book.incrementOverDueState() <= MAXOVERDUEDAYS) { // Increment and check overdue days
-                    member.incrementFines(FINEPERDAY); // Apply fine
-                    book.setBookReturnDueDate(1); // Extend due date
-                    System.out.println("\nA fine of " + FINEPERDAY + " has been added to " + member.getName() + ".");
-                    library.writeLog("A fine of " + FINEPERDAY + " has been added to " + member.getName() + ".");
-                } else { // Book is excessively overdue
-                    System.out.println("Book with ISBN " + book.getIsbn() + " has been removed due to not being returned for " + MAXOVERDUEDAYS + " days after due date.");
-                    borrowedBooks.remove(book); // Remove book from borrowed list
-                    library.removeBook(book.getIsbn()); // Remove book from library
+    private RuntimeException sweep(List<DueLoan> batch, boolean parallel, List<DueLoan> failed) {
+        Sweep sweep = new Sweep(batch);
+        if (parallel) {
+            int slice = Math.max(MIN_SLICE, batch.size() / ((ForkJoinPool.getCommonPoolParallelism() + 1) * SLICES_PER_THREAD));
+            new SweepTask(sweep, 0, batch.size(), slice).invoke(); // Runs in this thread, forking slices to the common pool
+        } else {
+            sweep.sweep(0, batch.size());
+        }
+
+        List<DueLoan> extended = new ArrayList<>();
+        List<AuditEvent> events = new ArrayList<>();
+        List<OverdueEvent> overdue = new ArrayList<>();
+        int withdrawn = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            DueLoan loan = batch.get(i);
+            switch (sweep.outcomes[i]) {
+                case FINED:
+                    extended.add(sweep.extended[i]);
+                    overdue.add(new OverdueEvent(loan.getCopy(), loan.getMember())); // Notify the member of the fine
+                    if (!parallel) {
+                        System.out.println("\nA fine of " + FINEPERDAY + " has been added to " + loan.getMember().getName() + ".");
+                    }
+                    break;
+                case WITHDRAWN:
+                    withdrawn++;
+                    if (!parallel) {
+                        System.out.println("A copy of the book with ISBN " + loan.getBook().getIsbn() + " has been removed due to not being returned for " + MAXOVERDUEDAYS + " days after due date.");
+                    }
+                    break;
+                case FAILED:
+                    failed.add(loan);
+                    break;
+                default:
+                    break; // Returned or extended since it was queued
+            }
+            if (sweep.events[i] != null) {
+                events.add(sweep.events[i]);
+            }
+        }
+        library.queueDueLoans(extended);
+        library.writeLogs(events);
+        notifications.publishAll(overdue);
+        finesCharged.add(extended.size());
+        copiesWithdrawn.add(withdrawn);
+        if (parallel) {
+            System.out.println("\nFines of " + FINEPERDAY + " have been added for " + extended.size() + " overdue books, and " + withdrawn + " copies have been removed due to not being returned for " + MAXOVERDUEDAYS + " days after due date.");
+        }
+        return sweep.failure;
+    }
+
+    /**
+     * Holds a batch of due loans and the outcome of each, shared by the slices of a batch swept in parallel.
+     * <p>
+     * Each slice only writes the elements of its own loans, so the slices never contend for the arrays.
+     */
+    private class Sweep {
+        private List<DueLoan> batch; // Due loans in due date order
+        private byte[] outcomes; // Outcome of each due loan
+        private DueLoan[] extended; // Loan with the due date extended by the fine, of each due loan fined
+        private AuditEvent[] events; // Audit event of each due loan fined or withdrawn
+        private volatile RuntimeException failure; // Latest error that stopped a due loan from being processed
+
+        /**
+         * Constructs a Sweep of a batch of due loans, none of them processed yet.
+         *
+         * @param batch The due loans in due date order.
+         */
+        private Sweep(List<DueLoan> batch) {
+            this.batch = batch;
+            outcomes = new byte[batch.size()];
+            extended = new DueLoan[batch.size()];
+            events = new AuditEvent[batch.size()];
+        }
+
+        /**
+         * Fines the member or removes the copy of each due loan in a range.
+         * <p>
+         * Entries left behind by a return or an extended due date are skipped. The library re-checks the loan under its lock before
+         * fining or removing the copy. A loan that cannot be processed is marked as failed instead of stopping the sweep.
+         *
+         * @param from The position of the first due loan of the range.
+         * @param to   The position after the last due loan of the range.
+         */
+        private void sweep(int from, int to) {
+            for (int i = from; i < to; i++) {
+                DueLoan loan = batch.get(i);
+                try {
+                    if (!loan.isCurrent()) {
+                        continue;
+                    }
+                    BookCopy copy = loan.getCopy();
+                    Member member = loan.getMember();
+                    String isbn = copy.getBook().getIsbn();
+                    if (copy.getOverDueState() < MAXOVERDUEDAYS) { // Check overdue days
+                        DueLoan fined = library.chargeOverdueCopy(copy, member, FINEPERDAY, 1); // Apply fine and extend due date
+                        if (fined != null) {
+                            outcomes[i] = FINED;
+                            extended[i] = fined;
+                            events[i] = new AuditEvent(AuditEvent.Type.FINE, member.getName(), isbn, FINEPERDAY, "A fine of " + FINEPERDAY + " has been added to " + member.getName() + ".");
+                        }
+                    } else if (library.withdrawOverdueCopy(copy, member)) { // Copy is excessively overdue
+                        outcomes[i] = WITHDRAWN;
+                        events[i] = new AuditEvent(AuditEvent.Type.WITHDRAW, member.getName(), isbn, 0, "A copy has been removed due to not being returned for " + MAXOVERDUEDAYS + " days after due date.");
+                    }
+                } catch (RuntimeException e) {
+                    outcomes[i] = FAILED;
+                    failure = e;
                 }
             }
         }
     }
+
+    /**
+     * Sweeps a range of a batch of due loans on the fork-join pool, splitting it in halves until it is no larger than a slice.
+     */
+    private static class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // Version of the serialized form inherited from ForkJoinTask
+
+        private Sweep sweep; // Batch the range belongs to
+        private int from; // Position of the first due loan of the range
+        private int to; // Position after the last due loan of the range
+        private int slice; // Most due loans swept without splitting the range
+
+        /**
+         * Constructs a SweepTask over a range of a batch.
+         *
+         * @param sweep The batch the range belongs to.
+         * @param from  The position of the first due loan of the range.
+         * @param to    The position after the last due loan of the range.
+         * @param slice The most due loans swept without splitting the range.
+         */
+        private SweepTask(Sweep sweep, int from, int to, int slice) {
+            this.sweep = sweep;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        /**
+         * Sweeps the range, or splits it and sweeps both halves in parallel.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= slice) {
+                sweep.sweep(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SweepTask(sweep, from, middle, slice), new SweepTask(sweep, middle, to, slice));
+        }
+    }
 }
@@ -0,0 +1,147 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps an append-only ledger of the fines charged to members and the payments made by them.
+ * <p>
+ * The member's fines field holds the running balance, which the ledger updates together with every entry it appends. Members with
+ * an outstanding balance are kept in a separate index, so listing them does not visit members who owe nothing.
+ * <p>
+ * Each member's entries are guarded by their own list, so fines charged to different members by a parallel sweep never wait for
+ * each other. A member's balance is accumulated atomically under that lock, keeping it in step with the entries.
+ */
+public class FinesLedger {
+    private Map<Member, List<LedgerEntry>> entries = new ConcurrentHashMap<>(); // Entries of each member in the order they were recorded, each list guarded by itself
+    private Map<Integer, Member> debtors = new ConcurrentSkipListMap<>(); // Members with an outstanding balance keyed by member id
+
+    /**
+     * Charges a fine to a member.
+     *
+     * @param member The member fined.
+     * @param isbn   The ISBN of the overdue book.
+     * @param amount The amount of the fine.
+     * @param time   When the fine was charged.
+     * @return The entry recorded.
+     */
+    public LedgerEntry charge(Member member, String isbn, int amount, LocalDateTime time) {
+        List<LedgerEntry> memberEntries = entriesOf(member);
+        synchronized (memberEntries) {
+            int balance = member.incrementFines(amount);
+            return append(member, memberEntries, new LedgerEntry(LedgerEntry.Type.CHARGE, time, member.getName(), isbn, amount, balance));
+        }
+    }
+
+    /**
+     * Records a payment off a member's fines.
+     *
+     * @param member The member paying.
+     * @param amount The amount paid.
+     * @param time   When the payment was made.
+     * @return The entry recorded.
+     */
+    public LedgerEntry pay(Member member, int amount, LocalDateTime time) {
+        List<LedgerEntry> memberEntries = entriesOf(member);
+        synchronized (memberEntries) {
+            int balance = member.decrementFines(amount);
+            return append(member, memberEntries, new LedgerEntry(LedgerEntry.Type.PAYMENT, time, member.getName(), null, amount, balance));
+        }
+    }
+
+    /**
+     * Adds an entry read back from a saved ledger without changing the member's balance, which is loaded with the member.
+     *
+     * @param member The member the entry belongs to.
+     * @param entry  The loaded entry.
+     */
+    public void load(Member member, LedgerEntry entry) {
+        List<LedgerEntry> memberEntries = entriesOf(member);
+        synchronized (memberEntries) {
+            memberEntries.add(entry);
+        }
+    }
+
+    /**
+     * Starts tracking a member added to the library, indexing them as a debtor if they already have a balance.
+     *
+     * @param member The member added.
+     */
+    public void track(Member member) {
+        updateDebtor(member);
+    }
+
+    /**
+     * Stops tracking a member removed from the library and drops their entries.
+     *
+     * @param member The member removed.
+     */
+    public void remove(Member member) {
+        entries.remove(member);
+        debtors.remove(member.getId(), member);
+    }
+
+    /**
+     * Lists the entries of a member in the order they were recorded.
+     *
+     * @param member The member.
+     * @return A list of the member's entries, empty if none were recorded.
+     */
+    public List<LedgerEntry> listEntries(Member member) {
+        List<LedgerEntry> memberEntries = entries.get(member);
+        if (memberEntries == null) {
+            return new ArrayList<>();
+        }
+        synchronized (memberEntries) {
+            return new ArrayList<>(memberEntries);
+        }
+    }
+
+    /**
+     * Lists the members with an outstanding balance.
+     *
+     * @return A list of the members who owe fines, in the order they were added to the library.
+     */
+    public List<Member> listDebtors() {
+        return new ArrayList<>(debtors.values());
+    }
+
+    /**
+     * Gets the entries of a member, starting an empty list for a member without entries.
+     *
+     * @param member The member.
+     * @return The member's entries, which also serve as the lock guarding them and the member's balance.
+     */
+    private List<LedgerEntry> entriesOf(Member member) {
+        return entries.computeIfAbsent(member, key -> new ArrayList<>());
+    }
+
+    /**
+     * Appends an entry to a member's entries and updates the debtor index. Must be called while holding the lock of the member's entries.
+     *
+     * @param member        The member the entry belongs to.
+     * @param memberEntries The member's entries.
+     * @param entry         The entry to append.
+     * @return The entry appended.
+     */
+    private LedgerEntry append(Member member, List<LedgerEntry> memberEntries, LedgerEntry entry) {
+        memberEntries.add(entry);
+        updateDebtor(member);
+        return entry;
+    }
+
+    /**
+     * Adds a member to or removes them from the debtor index according to their balance.
+     *
+     * @param member The member whose balance may have changed.
+     */
+    private void updateDebtor(Member member) {
+        if (member.getFines() > 0) {
+            debtors.put(member.getId(), member);
+        } else {
+            debtors.remove(member.getId(), member);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Represents a returned copy checked out to the next member waiting in the hold queue of its book.
+ */
+public class HoldReadyEvent extends NotificationEvent {
+    /**
+     * Constructs a HoldReadyEvent for a copy checked out from the hold queue.
+     *
+     * @param copy   The copy checked out to the member.
+     * @param member The member whose hold was filled.
+     */
+    public HoldReadyEvent(BookCopy copy, Member member) {
+        super(copy, member);
+    }
+}
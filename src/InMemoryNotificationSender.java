@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects overdue and hold notifications in memory instead of sending them, as a stand-in for tests and load runs.
+ */
+public class InMemoryNotificationSender implements NotificationSender {
+    private List<String> sent = Collections.synchronizedList(new ArrayList<>()); // Notifications sent, in order
+
+    /**
+     * Records a notification to the member listing the ISBNs of the overdue books.
+     *
+     * @param member The member to notify.
+     * @param books  The overdue books of the member.
+     */
+    public void send(Member member, List<Book> books) {
+        StringBuilder isbns = new StringBuilder();
+        for (Book book : books) {
+            if (isbns.length() > 0) {
+                isbns.append(", ");
+            }
+            isbns.append(book.getIsbn());
+        }
+        sent.add(member.getEmail() + ": " + isbns);
+    }
+
+    /**
+     * Records a notification to the member listing the ISBNs of the books checked out from their holds.
+     *
+     * @param member The member to notify.
+     * @param books  The books checked out to the member from their holds.
+     */
+    public void sendHoldReady(Member member, List<Book> books) {
+        StringBuilder isbns = new StringBuilder();
+        for (Book book : books) {
+            if (isbns.length() > 0) {
+                isbns.append(", ");
+            }
+            isbns.append(book.getIsbn());
+        }
+        sent.add(member.getEmail() + ": ready " + isbns);
+    }
+
+    /**
+     * Lists the notifications recorded so far.
+     *
+     * @return A copy of the notifications, each formatted as the member email followed by the ISBNs of the books,
+     *         marked "ready" for filled holds.
+     */
+    public List<String> listSent() {
+        synchronized (sent) {
+            return new ArrayList<>(sent);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Packs ISBNs into a single long, so a book stores its ISBN in eight bytes and the library can key books by a primitive value.
+ * <p>
+ * An ISBN is normalized by removing hyphens and whitespace. ISBN-10 and ISBN-13 fit, as does any identifier of up to 17 digits, the last of
+ * which may be the check digit X. The digits are stored as a number together with their count, so leading zeros survive the round trip.
+ */
+public final class Isbn {
+    public static final long INVALID = -1; // Packed value of a string that is not an ISBN
+    private static final int MAX_DIGITS = 17; // Most digits a packed ISBN holds, including an X check digit
+    private static final int LENGTH_SHIFT = 58; // Bit position of the digit count
+    private static final long CHECK_X = 1L << 57; // Flag bit marking a final X check digit
+    private static final long VALUE_MASK = CHECK_X - 1; // Bits holding the digits as a number
+
+    private Isbn() {
+    }
+
+    /**
+     * Normalizes and packs an ISBN.
+     *
+     * @param isbn The ISBN, optionally with hyphens and whitespace.
+     * @return The packed ISBN, or INVALID if the string is not an ISBN.
+     */
+    public static long pack(String isbn) {
+        long value = 0;
+        int digits = 0;
+        boolean checkX = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || Character.isWhitespace(c)) {
+                continue;
+            }
+            if (checkX || digits == MAX_DIGITS) {
+                return INVALID; // Nothing may follow an X check digit
+            }
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else if (c == 'X' || c == 'x') {
+                checkX = true;
+            } else {
+                return INVALID;
+            }
+            digits++;
+        }
+        if (digits == 0) {
+            return INVALID;
+        }
+        return (long) digits << LENGTH_SHIFT | (checkX ? CHECK_X : 0) | value;
+    }
+
+    /**
+     * Unpacks an ISBN into its normalized form.
+     *
+     * @param packed The packed ISBN.
+     * @return The ISBN without hyphens or whitespace.
+     * @throws IllegalArgumentException If the value is not a packed ISBN.
+     */
+    public static String unpack(long packed) {
+        if (packed <= 0) {
+            throw new IllegalArgumentException("Not a packed ISBN.");
+        }
+        int digits = (int) (packed >>> LENGTH_SHIFT);
+        boolean checkX = (packed & CHECK_X) != 0;
+        long value = packed & VALUE_MASK;
+        char[] chars = new char[digits];
+        int i = digits;
+        if (checkX) {
+            chars[--i] = 'X';
+        }
+        while (i > 0) {
+            chars[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,470 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Maintains an append-only journal of the changes made to the library since the last snapshot.
+ * <p>
+ * Every record is written through to the operating system as soon as it is appended, while forcing the journal to disk is batched across records.
+ * Appends force a complete batch, and the library's scheduler calls {@link #sync()} every sync interval to force the rest of a batch
+ * once the desk goes idle.
+ */
+public class Journal {
+    private static final int MAGIC = 0x4C4D534A; // "LMSJ" file signature
+    private static final int VERSION = 4; // Current journal format version
+    private static final int SYNC_BATCH = 64; // Records appended before the journal is forced to disk
+    public static final long SYNC_INTERVAL_MILLIS = 1000; // Longest time between forcing appended records to disk
+
+    private static final byte ADD_BOOK = 1; // Record type for an added book
+    private static final byte REMOVE_BOOK = 2; // Record type for a removed book
+    private static final byte ADD_MEMBER = 3; // Record type for an added member
+    private static final byte REMOVE_MEMBER = 4; // Record type for a removed member
+    private static final byte CHECKOUT = 5; // Record type for a checked out book
+    private static final byte RETURN = 6; // Record type for a returned book
+    private static final byte FINE = 7; // Record type for an overdue fine
+    private static final byte PAYMENT = 8; // Record type for a fine payment
+    private static final byte WITHDRAW_COPY = 9; // Record type for a copy withdrawn after not being returned
+    private static final byte HOLD = 10; // Record type for a placed hold
+    private static final byte CANCEL_HOLD = 11; // Record type for a cancelled hold
+
+    private String file; // File path of the journal
+    private FileOutputStream stream; // Stream of the open journal file
+    private DataOutputStream out; // Buffered writer over the open journal file
+    private int records = 0; // Records appended since the journal was opened
+    private int unsynced = 0; // Records appended since the journal was last forced to disk
+    private long lastSync = 0; // Time the journal was last forced to disk
+    private int deferrals = 0; // Sweeps in progress that force the journal to disk once complete
+
+    /**
+     * Constructs a Journal stored in the specified file.
+     * <p>
+     * The journal ignores records until it is opened, so changes applied while replaying it are not journaled again.
+     *
+     * @param file The file path of the journal.
+     */
+    public Journal(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Starts a new, empty journal of the specified generation, replacing any previous journal.
+     *
+     * @param generation The generation of the snapshot the journal follows.
+     * @throws IOException If the journal could not be created.
+     */
+    public synchronized void open(long generation) throws IOException {
+        close();
+        stream = new FileOutputStream(file, false);
+        out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(generation);
+        records = 0;
+        unsynced = 1;
+        sync();
+    }
+
+    /**
+     * Forces all appended records to disk and closes the journal.
+     *
+     * @throws IOException If the journal could not be closed.
+     */
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            sync();
+            out.close();
+            out = null;
+            stream = null;
+        }
+    }
+
+    /**
+     * Gets the number of records appended since the journal was opened.
+     *
+     * @return The number of records in the journal.
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException If the journal could not be forced to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (out == null || unsynced == 0) {
+            return;
+        }
+        out.flush();
+        stream.getChannel().force(false);
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Defers forcing appended records to disk until a sweep of many changes is complete.
+     * <p>
+     * While deferred, records are neither written through to the operating system one by one nor forced to disk per batch. They are
+     * still forced at least once per sync interval, so other changes made during a long sweep are not left unsynced for longer than usual.
+     */
+    public synchronized void deferSync() {
+        deferrals++;
+    }
+
+    /**
+     * Ends a deferral started by deferSync and forces all appended records to disk.
+     *
+     * @throws IOException If the journal could not be forced to disk.
+     */
+    public synchronized void resumeSync() throws IOException {
+        deferrals--;
+        sync();
+    }
+
+    /**
+     * Replays the journal into the library if it follows the snapshot of the specified generation.
+     * <p>
+     * A record cut short by a crash ends the replay, and a record that can no longer be applied is skipped.
+     *
+     * @param library    The library to apply the journaled changes to.
+     * @param generation The generation of the snapshot the library was loaded from.
+     * @return The number of records replayed.
+     * @throws IOException If the journal could not be read.
+     */
+    public int replay(Library library, long generation) throws IOException {
+        return scan(library, generation);
+    }
+
+    /**
+     * Counts the complete records in the journal, whatever snapshot it follows, without applying them.
+     *
+     * @return The number of records in the journal file, or 0 if there is no journal file.
+     * @throws IOException If the journal could not be read.
+     */
+    public int count() throws IOException {
+        return scan(null, 0);
+    }
+
+    /**
+     * Moves the journal file aside, so a new journal can be started without losing the changes it holds.
+     * <p>
+     * Must only be called while the journal is not open.
+     *
+     * @return The file path the journal was moved to.
+     * @throws IOException If the journal could not be moved.
+     */
+    public synchronized String setAside() throws IOException {
+        String kept = file + "." + System.currentTimeMillis() + ".skipped";
+        Files.move(Paths.get(file), Paths.get(kept));
+        return kept;
+    }
+
+    /**
+     * Reads the records of the journal, applying them to a library or only counting them.
+     *
+     * @param library    The library to apply the journaled changes to, or null to count the records of a journal of any generation.
+     * @param generation The generation of the snapshot the library was loaded from, ignored when only counting.
+     * @return The number of records read.
+     * @throws IOException If the journal could not be read.
+     */
+    private int scan(Library library, long generation) throws IOException {
+        if (!new File(file).isFile()) {
+            return 0;
+        }
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a library journal.");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported journal version " + version + ".");
+            }
+            if (in.readLong() != generation && library != null) {
+                return 0;
+            }
+            while (true) {
+                byte type = in.readByte();
+                try {
+                    switch (type) {
+                        case ADD_BOOK: {
+                            String title = in.readUTF();
+                            String author = in.readUTF();
+                            String isbn = in.readUTF();
+                            if (library != null) {
+                                library.addBook(new Book(title, author, isbn));
+                            }
+                            break;
+                        }
+                        case REMOVE_BOOK: {
+                            String isbn = in.readUTF();
+                            if (library != null) {
+                                library.removeBook(isbn);
+                            }
+                            break;
+                        }
+                        case ADD_MEMBER: {
+                            String name = in.readUTF();
+                            String email = in.readUTF();
+                            int fines = in.readInt();
+                            if (library != null) {
+                                library.addMember(new Member(name, email, fines));
+                            }
+                            break;
+                        }
+                        case REMOVE_MEMBER: {
+                            String memberName = in.readUTF();
+                            if (library != null) {
+                                library.removeMember(memberName);
+                            }
+                            break;
+                        }
+                        case CHECKOUT: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            LocalDateTime dueDate = readDate(in);
+                            if (library != null) {
+                                library.checkoutBook(isbn, memberName, dueDate);
+                            }
+                            break;
+                        }
+                        case RETURN: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            if (library != null) {
+                                library.returnBook(isbn, memberName);
+                            }
+                            break;
+                        }
+                        case FINE: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            int fine = in.readInt();
+                            LocalDateTime dueDate = readDate(in);
+                            LocalDateTime chargedAt = version >= 4 ? readDate(in) : LocalDateTime.now();
+                            if (library != null) {
+                                library.fineBook(isbn, memberName, fine, dueDate, chargedAt);
+                            }
+                            break;
+                        }
+                        case PAYMENT: {
+                            String memberName = in.readUTF();
+                            int amount = in.readInt();
+                            LocalDateTime paidAt = version >= 4 ? readDate(in) : LocalDateTime.now();
+                            if (library != null) {
+                                library.payFine(memberName, amount, paidAt);
+                            }
+                            break;
+                        }
+                        case WITHDRAW_COPY: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            if (library != null) {
+                                library.withdrawCopy(isbn, memberName);
+                            }
+                            break;
+                        }
+                        case HOLD: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            if (library != null) {
+                                library.placeHold(isbn, memberName);
+                            }
+                            break;
+                        }
+                        case CANCEL_HOLD: {
+                            String isbn = in.readUTF();
+                            String memberName = in.readUTF();
+                            if (library != null) {
+                                library.cancelHold(isbn, memberName);
+                            }
+                            break;
+                        }
+                        default:
+                            throw new IOException("Unknown journal record type " + type + ".");
+                    }
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    System.out.println("Skipped journal entry: " + e.getMessage());
+                }
+                replayed++;
+            }
+        } catch (EOFException e) {
+            return replayed;
+        }
+    }
+
+    /**
+     * Records an added book.
+     *
+     * @param book The added book.
+     */
+    public void recordAddBook(Book book) {
+        append(ADD_BOOK, book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    /**
+     * Records a removed book.
+     *
+     * @param isbn The ISBN of the removed book.
+     */
+    public void recordRemoveBook(String isbn) {
+        append(REMOVE_BOOK, isbn);
+    }
+
+    /**
+     * Records an added member.
+     *
+     * @param member The added member.
+     */
+    public void recordAddMember(Member member) {
+        append(ADD_MEMBER, member.getName(), member.getEmail(), member.getFines());
+    }
+
+    /**
+     * Records a removed member.
+     *
+     * @param memberName The name of the removed member.
+     */
+    public void recordRemoveMember(String memberName) {
+        append(REMOVE_MEMBER, memberName);
+    }
+
+    /**
+     * Records a checked out book.
+     *
+     * @param isbn       The ISBN of the checked out book.
+     * @param memberName The name of the member checking out the book.
+     * @param dueDate    The due date for returning the book.
+     */
+    public void recordCheckout(String isbn, String memberName, LocalDateTime dueDate) {
+        append(CHECKOUT, isbn, memberName, dueDate);
+    }
+
+    /**
+     * Records a returned book.
+     *
+     * @param isbn       The ISBN of the returned book.
+     * @param memberName The name of the member returning the book.
+     */
+    public void recordReturn(String isbn, String memberName) {
+        append(RETURN, isbn, memberName);
+    }
+
+    /**
+     * Records an overdue fine.
+     *
+     * @param isbn       The ISBN of the overdue book.
+     * @param memberName The name of the member fined.
+     * @param fine       The amount of the fine.
+     * @param dueDate    The extended due date of the book.
+     * @param chargedAt  When the fine was charged.
+     */
+    public void recordFine(String isbn, String memberName, int fine, LocalDateTime dueDate, LocalDateTime chargedAt) {
+        append(FINE, isbn, memberName, fine, dueDate, chargedAt);
+    }
+
+    /**
+     * Records a fine payment.
+     *
+     * @param memberName The name of the member paying.
+     * @param amount     The amount paid.
+     * @param paidAt     When the payment was made.
+     */
+    public void recordPayment(String memberName, int amount, LocalDateTime paidAt) {
+        append(PAYMENT, memberName, amount, paidAt);
+    }
+
+    /**
+     * Records a copy withdrawn after not being returned.
+     *
+     * @param isbn       The ISBN of the withdrawn copy.
+     * @param memberName The name of the member who borrowed the copy.
+     */
+    public void recordWithdrawCopy(String isbn, String memberName) {
+        append(WITHDRAW_COPY, isbn, memberName);
+    }
+
+    /**
+     * Records a placed hold.
+     *
+     * @param isbn       The ISBN of the book held.
+     * @param memberName The name of the member placing the hold.
+     */
+    public void recordHold(String isbn, String memberName) {
+        append(HOLD, isbn, memberName);
+    }
+
+    /**
+     * Records a cancelled hold.
+     *
+     * @param isbn       The ISBN of the book held.
+     * @param memberName The name of the member who placed the hold.
+     */
+    public void recordCancelHold(String isbn, String memberName) {
+        append(CANCEL_HOLD, isbn, memberName);
+    }
+
+    /**
+     * Appends a record to the journal if it is open.
+     * <p>
+     * The record is written through to the operating system, and the journal is forced to disk once a batch is complete. During a sweep
+     * the record is only buffered, and the journal is forced to disk once the sweep is complete or the sync interval has passed.
+     *
+     * @param type   The record type.
+     * @param fields The strings, integers and dates making up the record.
+     * @throws IllegalStateException If the record could not be written.
+     */
+    private synchronized void append(byte type, Object... fields) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.writeByte(type);
+            for (Object field : fields) {
+                if (field instanceof String) {
+                    out.writeUTF((String) field);
+                } else if (field instanceof Integer) {
+                    out.writeInt((Integer) field);
+                } else {
+                    out.writeLong(((LocalDateTime) field).toEpochSecond(ZoneOffset.UTC));
+                }
+            }
+            records++;
+            unsynced++;
+            if (deferrals > 0) {
+                if (System.currentTimeMillis() - lastSync >= SYNC_INTERVAL_MILLIS) {
+                    sync();
+                }
+                return;
+            }
+            out.flush();
+            if (unsynced >= SYNC_BATCH || System.currentTimeMillis() - lastSync >= SYNC_INTERVAL_MILLIS) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to the journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a date written as epoch seconds.
+     *
+     * @param in The stream to read from.
+     * @return The date read.
+     * @throws IOException If the date could not be read.
+     */
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+    }
+}
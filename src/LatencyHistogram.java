@@ -0,0 +1,132 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a distribution of latencies without locks, in the style of an HDR histogram.
+ * <p>
+ * Values are counted in buckets that split every power of two into 32 equal sub-buckets, so any recorded value is reported within about
+ * 3% of its true value while the histogram covers nanoseconds to centuries in under 2000 counters. Recording is a few arithmetic
+ * operations and one atomic increment, so it is cheap enough for the circulation hot paths.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5; // Bits of precision kept below the leading bit of a value
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Sub-buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS; // Buckets covering every non-negative long
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKETS); // Number of values recorded in each bucket
+    private LongAdder count = new LongAdder(); // Number of values recorded
+    private LongAdder total = new LongAdder(); // Sum of the values recorded
+    private AtomicLong max = new AtomicLong(); // Largest value recorded
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds, negative values counting as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since a start time.
+     *
+     * @param startNanos The start time, from System.nanoTime.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the mean of the values recorded.
+     *
+     * @return The mean in nanoseconds, zero if nothing was recorded.
+     */
+    public long getMean() {
+        long recorded = count.sum();
+        return recorded == 0 ? 0 : total.sum() / recorded;
+    }
+
+    /**
+     * Gets the largest value recorded.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value below which a fraction of the recorded values fall.
+     *
+     * @param fraction The percentile as a fraction between 0 and 1.
+     * @return The highest value of the bucket holding the percentile in nanoseconds, capped at the maximum, zero if nothing was recorded.
+     */
+    public long getPercentile(double fraction) {
+        long recorded = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Gets the bucket a value is counted in.
+     *
+     * @param value The non-negative value.
+     * @return The index of the bucket.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the highest value counted in a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The highest value of the bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,106 @@
+import java.time.LocalDateTime;
+
+/**
+ * Represents one entry in the fines ledger, a fine charged to a member or a payment made by them.
+ * <p>
+ * Entries are never changed once recorded. Each entry keeps the member's balance after it was applied, so a statement can be read
+ * from the entries alone.
+ */
+public class LedgerEntry {
+    /**
+     * The kinds of ledger entry.
+     */
+    public enum Type {
+        CHARGE, // An overdue fine charged to the member
+        PAYMENT // An amount paid off the member's fines
+    }
+
+    private Type type; // Whether the entry is a charge or a payment
+    private LocalDateTime time; // When the entry was recorded, to the second
+    private String memberName; // The name of the member the entry belongs to
+    private String isbn; // The ISBN of the overdue book, or null for a payment
+    private int amount; // The amount charged or paid
+    private int balance; // The member's balance after the entry
+
+    /**
+     * Constructs a LedgerEntry.
+     *
+     * @param type       Whether the entry is a charge or a payment.
+     * @param time       When the entry was recorded.
+     * @param memberName The name of the member the entry belongs to.
+     * @param isbn       The ISBN of the overdue book, or null for a payment.
+     * @param amount     The amount charged or paid.
+     * @param balance    The member's balance after the entry.
+     */
+    public LedgerEntry(Type type, LocalDateTime time, String memberName, String isbn, int amount, int balance) {
+        this.type = type;
+        this.time = time;
+        this.memberName = memberName;
+        this.isbn = isbn;
+        this.amount = amount;
+        this.balance = balance;
+    }
+
+    /**
+     * Gets whether the entry is a charge or a payment.
+     *
+     * @return The type of the entry.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets when the entry was recorded.
+     *
+     * @return The time of the entry.
+     */
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the name of the member the entry belongs to.
+     *
+     * @return The member name.
+     */
+    public String getMemberName() {
+        return memberName;
+    }
+
+    /**
+     * Gets the ISBN of the overdue book a fine was charged for.
+     *
+     * @return The ISBN, or null for a payment.
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Gets the amount charged or paid.
+     *
+     * @return The amount of the entry.
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the change the entry made to the member's balance.
+     *
+     * @return The amount for a charge, or the negated amount for a payment.
+     */
+    public int getChange() {
+        return type == Type.CHARGE ? amount : -amount;
+    }
+
+    /**
+     * Gets the member's balance after the entry.
+     *
+     * @return The running balance.
+     */
+    public int getBalance() {
+        return balance;
+    }
+}
@@ -1,45 +1,487 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.management.JMException;
 
 /**
  * Manages the library by providing operations for adding, removing, searching, and listing books and members.
  * <p>
- * Handles book checkouts and returns.
+ * Handles book checkouts and returns. A book may be held in several copies, and each loan is of one copy.
+ * <p>
+ * The library is safe for use by many threads at once. Changes to a book are serialized by a lock striped on its ISBN,
+ * so desks and background jobs working on different books never wait for each other.
  */
 public class Library {
-    private List<Book> books = new ArrayList<>(); // Collection of books in the library
-    private List<Member> members = new ArrayList<>(); // Collection of library members
-    private Map<Book, Member> borrowedBooks = new HashMap<>(); // Map of borrowed books to members
+    public enum BookOrder {
+        ADDED, // The order the books were added in
+        TITLE, // Alphabetical by title, ignoring case
+        AUTHOR, // Alphabetical by author, ignoring case
+        ISBN // Ascending by ISBN
+    }
+
+    public enum MemberOrder {
+        ADDED, // The order the members joined in
+        NAME, // Alphabetical by name, ignoring case
+        FINES // Largest fines first
+    }
+
+    private Map<Long, Book> books = new ConcurrentHashMap<>(); // Collection of books in the library keyed by packed ISBN
+    private Map<Integer, Book> catalogue = new ConcurrentSkipListMap<>(); // Books in the library in the order they were added
+    private TrigramIndex titleIndex = new TrigramIndex(Book::getTitle); // Trigram index over book titles
+    private TrigramIndex authorIndex = new TrigramIndex(Book::getAuthor, true); // Trigram index over book authors
+    private TermIndex termIndex = new TermIndex(catalogue::get); // Term index over the words of book titles and authors for ranked searches
+    private Map<String, Member> members = new ConcurrentHashMap<>(); // Collection of library members keyed by case-folded name
+    private Map<String, Member> membersByEmail = new ConcurrentHashMap<>(); // Library members keyed by case-folded email
+    private Map<Integer, Member> memberRoll = new ConcurrentSkipListMap<>(); // Library members in the order they were added
+    private LoanTable loans = new LoanTable(); // Borrower, due date and overdue and notification states of every borrowed copy
+    private Map<Member, Set<BookCopy>> loansByMember = new ConcurrentHashMap<>(); // Copies borrowed by each member with at least one loan
+    private DelayQueue<DueLoan> dueLoans = new DelayQueue<>(); // Loans ordered by due date for fine processing
+    private Map<Long, Deque<Member>> holds = new ConcurrentHashMap<>(); // FIFO hold queues keyed by packed ISBN, each guarded by its book lock
+    private FinesLedger ledger = new FinesLedger(); // Ledger of fines charged and paid, with the members who owe fines
+    private AtomicInteger nextBookId = new AtomicInteger(); // Last id assigned to a book
+    private AtomicInteger nextMemberId = new AtomicInteger(); // Last id assigned to a member
+
+    private Lock[] bookLocks = new Lock[LOCK_STRIPES]; // Locks serializing changes to books, striped by ISBN
+    private Lock memberLock = new ReentrantLock(); // Lock serializing member registrations and removals
+    private ReadWriteLock compactionLock = new ReentrantReadWriteLock(); // Shared by changes, held exclusively while compacting
+    private Journal journal = new Journal(JOURNAL_FILE); // Journal of changes made since the snapshot
+    private AuditLog auditLog = new AuditLog(LOG_DIRECTORY, LOG_RETENTION_DAYS, LOG_SEGMENT_BYTES, AuditLog.SyncPolicy.INTERVAL, LOG_SYNC_INTERVAL_MILLIS); // Asynchronous writer for the audit log store
+    private long generation = 0; // Generation of the current snapshot and journal
+    private volatile boolean replaying = false; // Whether the journal is being replayed
+
+    private MetricsRegistry metrics = new MetricsRegistry(); // Counters, latency histograms and gauges of the library
+    private LatencyHistogram checkoutTimes = metrics.histogram("circulation.checkout"); // Time taken by checkouts, including waiting for the book lock
+    private LatencyHistogram returnTimes = metrics.histogram("circulation.return"); // Time taken by returns, including waiting for the book lock
+    private LatencyHistogram titleSearchTimes = metrics.histogram("search.title"); // Time taken by title searches
+    private LatencyHistogram authorSearchTimes = metrics.histogram("search.author"); // Time taken by author searches
+    private LatencyHistogram isbnSearchTimes = metrics.histogram("search.isbn"); // Time taken by ISBN lookups
+    private LatencyHistogram rankedSearchTimes = metrics.histogram("search.ranked"); // Time taken by ranked searches
+    private LatencyHistogram loadTimes = metrics.histogram("persistence.load"); // Time taken by loading the library
+    private LatencyHistogram saveTimes = metrics.histogram("persistence.save"); // Time taken by saving the library
+    private LongAdder checkouts = metrics.counter("circulation.checkouts"); // Copies checked out
+    private LongAdder returns = metrics.counter("circulation.returns"); // Copies returned
 
-    private FineProcessing fines = new FineProcessing(this); // Fine processing module
-    private Thread fineThread = new Thread(fines); // Thread for fine processing
     private NotificationProcessing notifications = new NotificationProcessing(this); // Notification processing module
-    private Thread notificationThread = new Thread(notifications); // Thread for notification processing
+    private FineProcessing fines = new FineProcessing(this, notifications); // Fine processing module
+    private Scheduler scheduler = new Scheduler("library-scheduler", SCHEDULER_THREADS); // Scheduler running the background jobs
+    private ScheduledJob fineJob; // Job sweeping loans as they come due, null without background processing
 
     private static final String BOOKS_FILE = "books.txt"; // File path for storing books data
     private static final String MEMBERS_FILE = "members.txt"; // File path for storing members data
-    private static final String LOG_FILE = "logs.txt"; // File path for storing members data
+    private static final String HOLDS_FILE = "holds.txt"; // File path for storing hold queues
+    private static final String LEDGER_FILE = "fines.txt"; // File path for storing the fines ledger
+    private static final String SNAPSHOT_FILE = "library.dat"; // File path for storing the binary snapshot
+    private static final String JOURNAL_FILE = "journal.dat"; // File path for storing changes made since the snapshot
+    private static final int COMPACT_THRESHOLD = 10000; // Journal records after which the journal is compacted into a new snapshot
+    private static final String LOG_DIRECTORY = "logs"; // Directory storing the daily audit log partitions
+    private static final int LOCK_STRIPES = 64; // Number of book lock stripes, a power of two
+    private static final int LOG_RETENTION_DAYS = 400; // Number of days of audit log partitions kept
+    private static final long LOG_SEGMENT_BYTES = 10 * 1024 * 1024; // Size after which a day's audit log partition continues in a new segment
+    private static final long LOG_SYNC_INTERVAL_MILLIS = 1000; // Longest time between forcing the log file to disk
+    private static final int SCHEDULER_THREADS = 2; // Number of threads running background jobs
+    private static final long FINE_START_DELAY_MILLIS = 1000; // Delay before the first fine sweep
+    private static final long FINE_RETRY_MILLIS = 1000; // Delay before retrying a failed fine sweep
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000; // Longest time to wait for background jobs on shutdown
+    private static final String METRICS_NAME = "lms:type=Metrics"; // JMX object name the metrics are published under
+    private static final String METRICS_FILE_PROPERTY = "lms.metrics.file"; // System property naming a file to dump metrics to periodically
+    private static final String METRICS_INTERVAL_PROPERTY = "lms.metrics.intervalSeconds"; // System property setting the seconds between metrics dumps
+    private static final long METRICS_INTERVAL_SECONDS = 60; // Default seconds between metrics dumps
 
     /**
      * Constructs a Library object with empty collections for books, members, and borrowed books.
      */
     public Library() {
-        fineThread.start(); // Start fine processing thread
-        notificationThread.start(); // Start notification processing thread
+        this(true);
+    }
+
+    /**
+     * Constructs a Library object, optionally without scheduling the fine and notification jobs.
+     * <p>
+     * Tools that drive fine processing themselves, such as benchmarks, construct the library without background processing.
+     *
+     * @param backgroundProcessing Whether to schedule the fine and notification processing jobs.
+     */
+    public Library(boolean backgroundProcessing) {
+        for (int i = 0; i < bookLocks.length; i++) {
+            bookLocks[i] = new ReentrantLock();
+        }
+        if (backgroundProcessing) {
+            fineJob = scheduler.scheduleByDeadline("fine-processing", FINE_START_DELAY_MILLIS, FINE_RETRY_MILLIS, fines::processDueLoans); // Sweep loans as they come due
+            scheduler.scheduleAtFixedRate("notification-dispatch", NotificationProcessing.BATCH_WINDOW_MILLIS, NotificationProcessing.BATCH_WINDOW_MILLIS,
+                    notifications::notifications); // Dispatch the notifications published in each batch window
+            scheduler.scheduleAtFixedRate("journal-sync", Journal.SYNC_INTERVAL_MILLIS, Journal.SYNC_INTERVAL_MILLIS,
+                    this::syncJournal); // Force the last records of a batch to disk once changes stop coming in
+        }
+        metrics.gauge("loans.current", loans::size);
+        metrics.gauge("loans.overdue", () -> loans.countDueBefore(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC)));
+        metrics.gauge("fines.debtors", () -> ledger.listDebtors().size());
+        if (backgroundProcessing) {
+            try {
+                metrics.register(METRICS_NAME);
+            } catch (JMException e) {
+                System.err.println("An error occurred while publishing metrics over JMX: " + e.getMessage());
+            }
+            String metricsFile = System.getProperty(METRICS_FILE_PROPERTY);
+            if (metricsFile != null) {
+                long interval = TimeUnit.SECONDS.toMillis(Long.getLong(METRICS_INTERVAL_PROPERTY, METRICS_INTERVAL_SECONDS));
+                scheduler.scheduleAtFixedRate("metrics-dump", interval, interval, () -> dumpMetrics(metricsFile)); // Dump the metrics to the file periodically
+            }
+        }
+    }
+
+    /**
+     * Gets the metrics registry of the library.
+     * 
+     * @return The registry holding the library's counters, latency histograms and gauges.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Renders the current metrics and the run-time and lag of every background job as lines of text.
+     * 
+     * @return The lines of the report, latencies in milliseconds.
+     */
+    public List<String> reportMetrics() {
+        List<String> lines = metrics.report();
+        for (ScheduledJob job : scheduler.listJobs()) {
+            lines.add("job." + job.getName() + " | Runs: " + job.getRuns() + " | Failures: " + job.getFailures() + " | Mean run: "
+                    + String.format("%.3f ms", job.getAverageRunNanos() / 1_000_000.0) + " | Max run: " + String.format("%.3f ms", job.getMaxRunNanos() / 1_000_000.0)
+                    + " | Max lag: " + String.format("%.3f ms", job.getMaxLagNanos() / 1_000_000.0));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the current metrics report to a file, replacing its previous contents.
+     * 
+     * @param file The file path to write to.
+     */
+    private void dumpMetrics(String file) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Metrics at " + LocalDateTime.now());
+        lines.addAll(reportMetrics());
+        Path target = Paths.get(file);
+        Path temp = Paths.get(file + ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("An error occurred while writing metrics: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the background jobs and flushes pending state: undelivered notifications, the journal and the audit log.
+     * <p>
+     * Waits for a fine sweep in progress to finish, so no change is cut off halfway.
+     */
+    public void shutdown() {
+        if (!scheduler.shutdown(SHUTDOWN_TIMEOUT_MILLIS)) {
+            System.err.println("Background jobs did not finish within " + SHUTDOWN_TIMEOUT_MILLIS + " ms.");
+        }
+        metrics.unregister();
+        notifications.notifications();
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.err.println("An error occurred while writing the journal: " + e.getMessage());
+            e.printStackTrace();
+        }
+        auditLog.flush();
+    }
+
+    /**
+     * Forces the records appended to the journal to disk.
+     * <p>
+     * Run by the scheduler every sync interval, so records appended before the desk goes idle are not left unforced until the next change.
+     *
+     * @throws IllegalStateException If the journal could not be forced to disk.
+     */
+    private void syncJournal() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not force the journal to disk: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lists the background jobs with their run-time and lag metrics.
+     * 
+     * @return A list of the scheduled jobs.
+     */
+    public List<ScheduledJob> listJobs() {
+        return scheduler.listJobs();
     }
 
     /**
      * Loads data from files into the library.
+     * <p>
+     * Loads the binary snapshot when it is at least as recent as the text files, otherwise imports the text files.
+     * Changes journaled after the snapshot are then replayed, and the journal is opened for new changes. A journal that cannot be
+     * replayed because the snapshot it follows was not loaded is kept aside with a warning instead of being discarded.
      */
     public void loadData() {
+        long start = System.nanoTime();
+        boolean loadedSnapshot = false;
+        if (snapshotIsCurrent()) {
+            try {
+                LibrarySnapshot snapshot = LibrarySnapshot.read(SNAPSHOT_FILE, loans);
+                for (Member member : snapshot.getMembers()) {
+                    loadMember(member);
+                }
+                for (Book book : snapshot.getBooks()) {
+                    loadBook(book);
+                }
+                for (Map.Entry<String, List<String>> queue : snapshot.getHolds().entrySet()) {
+                    for (String memberName : queue.getValue()) {
+                        loadHold(queue.getKey(), memberName);
+                    }
+                }
+                for (LedgerEntry entry : snapshot.getLedger()) {
+                    loadLedgerEntry(entry);
+                }
+                generation = snapshot.getGeneration();
+                loadedSnapshot = true;
+                System.out.println("Books and members have been loaded from " + SNAPSHOT_FILE);
+            } catch (IOException e) {
+                System.out.println("Snapshot file is corrupted, importing text files instead.");
+                importData();
+            }
+        } else {
+            importData();
+        }
+        for (Book book : catalogue.values()) {
+            int slots = book.getCopySlots();
+            for (int i = 0; i < slots; i++) {
+                BookCopy copy = new BookCopy(book, i);
+                if (book.isOnLoan(i) && copy.getMemberId() != 0) {
+                    Member member = memberRoll.get(copy.getMemberId());
+                    if (member != null) {
+                        addLoan(copy, member);
+                        queueDueLoan(new DueLoan(copy, member, copy.getBookReturnDueDate()));
+                    }
+                }
+            }
+        }
+        // The journal only follows the text files when no snapshot has been written yet
+        int replayed = 0;
+        if (loadedSnapshot || !new File(SNAPSHOT_FILE).exists()) {
+            try {
+                replaying = true;
+                replayed = journal.replay(this, generation);
+                if (replayed > 0) {
+                    System.out.println(replayed + " changes have been replayed from " + JOURNAL_FILE);
+                }
+            } catch (IOException e) {
+                System.out.println("Journal file is corrupted, changes since the last save have been lost.");
+            } finally {
+                replaying = false;
+            }
+        } else {
+            setJournalAside();
+        }
+        if (replayed > 0 || !loadedSnapshot) {
+            compact();
+        } else {
+            try {
+                journal.open(generation);
+            } catch (IOException e) {
+                System.err.println("An error occurred while opening the journal: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        loadTimes.recordSince(start);
+    }
+
+    /**
+     * Moves a journal that follows a snapshot that was not loaded aside and warns how many changes it holds.
+     * <p>
+     * The journal's changes were made after the snapshot, so they cannot be applied to the text files. Moving it aside keeps them from
+     * being discarded when the next journal is started.
+     */
+    private void setJournalAside() {
+        try {
+            int pending = journal.count();
+            if (pending > 0) {
+                String kept = journal.setAside();
+                System.out.println("Warning: " + pending + " changes in " + JOURNAL_FILE + " follow a snapshot that was not loaded and have not been replayed. "
+                        + "The journal has been kept as " + kept + ".");
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred while setting the journal aside: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves data from the library to files.
+     * <p>
+     * Exports the text files first and then compacts the journal into the binary snapshot, so the snapshot is the most recent file.
+     * Changes are already durable in the journal, so saving is only needed to keep the text files current.
+     */
+    public void saveData() {
+        long start = System.nanoTime();
+        compactionLock.writeLock().lock();
+        try {
+            exportData();
+            compact();
+            auditLog.flush();
+        } finally {
+            compactionLock.writeLock().unlock();
+            saveTimes.recordSince(start);
+        }
+    }
+
+    /**
+     * Compacts the journal by writing a new snapshot and starting an empty journal of the next generation.
+     * <p>
+     * A crash between the two steps is safe, because a journal of an older generation is ignored on load.
+     * Changes wait while the snapshot is written, so the snapshot and the new journal never overlap.
+     */
+    public void compact() {
+        compactionLock.writeLock().lock();
+        try {
+            LibrarySnapshot.write(SNAPSHOT_FILE, generation + 1, new ArrayList<>(catalogue.values()), new ArrayList<>(memberRoll.values()), listHoldQueues(), listLedgerEntries());
+            generation++;
+            journal.open(generation);
+            System.out.println("Snapshot has been saved to " + SNAPSHOT_FILE);
+        } catch (IOException e) {
+            System.err.println("An error occurred while saving the snapshot: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts the journal once it holds enough records.
+     * <p>
+     * Must be called without holding a book or member lock, since compaction waits for all changes in progress.
+     */
+    private void compactIfDue() {
+        if (journal.size() >= COMPACT_THRESHOLD) {
+            compactionLock.writeLock().lock();
+            try {
+                if (journal.size() >= COMPACT_THRESHOLD) {
+                    compact();
+                }
+            } finally {
+                compactionLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks the stripe guarding changes to the book with the specified ISBN.
+     * 
+     * @param isbn The ISBN of the book to be changed.
+     * @return The lock to pass to unlockBook once the change is complete.
+     */
+    private Lock lockBook(String isbn) {
+        return lockBook(Isbn.pack(isbn));
+    }
+
+    /**
+     * Locks the stripe guarding changes to the book with the specified packed ISBN.
+     * 
+     * @param packedIsbn The packed ISBN of the book to be changed.
+     * @return The lock to pass to unlockBook once the change is complete.
+     */
+    private Lock lockBook(long packedIsbn) {
+        compactionLock.readLock().lock();
+        Lock lock = bookLocks[Long.hashCode(packedIsbn) & (LOCK_STRIPES - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Unlocks a stripe locked by lockBook.
+     * 
+     * @param lock The lock returned by lockBook.
+     */
+    private void unlockBook(Lock lock) {
+        lock.unlock();
+        compactionLock.readLock().unlock();
+    }
+
+    /**
+     * Locks member registrations and removals.
+     */
+    private void lockMembers() {
+        compactionLock.readLock().lock();
+        memberLock.lock();
+    }
+
+    /**
+     * Unlocks member registrations and removals locked by lockMembers.
+     */
+    private void unlockMembers() {
+        memberLock.unlock();
+        compactionLock.readLock().unlock();
+    }
+
+    /**
+     * Imports books and members from the text files into the library.
+     * <p>
+     * Members are imported first, so the borrowers of the books can be resolved to member ids.
+     */
+    public void importData() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(MEMBERS_FILE))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Split each line by ", " to separate member attributes
+                String[] parts = line.split(", ");
+                if (parts.length == 3) {
+                    String name = parts[0];
+                    String email = parts[1];
+                    int fines = Integer.parseInt(parts[2]);
+                    // Create a new Member object and add it to the library unless the name is already present
+                    Member newMember = new Member(name, email, fines);
+                    loadMember(newMember);
+                }
+            }
+            reader.close();
+            System.out.println("Members have been loaded from " + MEMBERS_FILE);
+        } catch (IOException e) {
+            System.out.println("Members file not found or is corrupted, will be created on next save.");
+        }
         try (BufferedReader reader = new BufferedReader(new FileReader(BOOKS_FILE))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -52,16 +494,21 @@ public class Library {
                     boolean isAvailable = Boolean.parseBoolean(parts[3]);
                     int overDueState = Integer.parseInt(parts[5]);
                     int notificationState = Integer.parseInt(parts[6]);
-                    String memberEmail = parts[7];
+                    // Borrowers are stored by email, which the members loaded above resolve to member ids
+                    Member borrower = membersByEmail.get(memberKey(parts[7]));
                     Book newBook;
-                    if (parts[4].equals("null")) {
+                    try {
                         newBook = new Book(title, author, isbn);
-                    } else {
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Skipped book: " + e.getMessage());
+                        continue;
+                    }
+                    // Add the book to the library, or add it as another copy if its ISBN is already present, then restore its loan
+                    BookCopy copy = loadBook(newBook);
+                    if (!isAvailable && !parts[4].equals("null")) {
                         LocalDateTime localDateTime = LocalDateTime.parse(parts[4]);
-                        newBook = new Book(title, author, isbn, isAvailable, localDateTime, overDueState, notificationState, memberEmail);
+                        copy.getBook().restoreLoan(copy.getCopy(), borrower == null ? 0 : borrower.getId(), localDateTime, overDueState, notificationState);
                     }
-                    // Create a new Book object and add it to the library
-                    books.add(newBook);
                 }
             }
             reader.close();
@@ -69,54 +516,62 @@ public class Library {
         } catch (IOException e) {
             System.out.println("Books file not found or is corrupted, will be created on next save.");
         }
-        try (BufferedReader reader = new BufferedReader(new FileReader(MEMBERS_FILE))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(HOLDS_FILE))) {
             String line;
             while ((line = reader.readLine()) != null) {
-                // Split each line by ", " to separate member attributes
+                // Split each line by ", " to separate the ISBN and the member name, in queue order
                 String[] parts = line.split(", ");
-                if (parts.length == 3) {
-                    String name = parts[0];
-                    String email = parts[1];
-                    int fines = Integer.parseInt(parts[2]);
-                    // Create a new Member object and add it to the list
-                    Member newMember = new Member(name, email, fines);
-                    members.add(newMember);
+                if (parts.length == 2) {
+                    loadHold(parts[0], parts[1]);
                 }
             }
-            reader.close();
-            System.out.println("Members have been loaded from " + MEMBERS_FILE);
+            System.out.println("Holds have been loaded from " + HOLDS_FILE);
         } catch (IOException e) {
-            System.out.println("Members file not found or is corrupted, will be created on next save.");
+            System.out.println("Holds file not found or is corrupted, will be created on next save.");
         }
-        for (Book book : books) {
-            if (book.getMemberEmail() != null) {
-                for (Member member : members) {
-                    if (member.getEmail().contains(book.getMemberEmail())) {
-                        borrowedBooks.put(book, member);
-                    }
+        try (BufferedReader reader = new BufferedReader(new FileReader(LEDGER_FILE))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Split each line by ", " to separate the time, type, member name, ISBN, amount and balance of the entry
+                String[] parts = line.split(", ");
+                if (parts.length == 6) {
+                    LocalDateTime time = LocalDateTime.parse(parts[0]);
+                    LedgerEntry.Type type = LedgerEntry.Type.valueOf(parts[1]);
+                    String isbn = parts[3].equals("null") ? null : parts[3];
+                    loadLedgerEntry(new LedgerEntry(type, time, parts[2], isbn, Integer.parseInt(parts[4]), Integer.parseInt(parts[5])));
                 }
             }
+            System.out.println("Fines ledger has been loaded from " + LEDGER_FILE);
+        } catch (IOException e) {
+            System.out.println("Fines ledger file not found or is corrupted, will be created on next save.");
         }
-
     }
 
     /**
-     * Saves data from the library to files.
+     * Exports books and members from the library to the text files.
      */
-    public void saveData() {
+    public void exportData() {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(BOOKS_FILE))) {
-            for (Book book : books) {
+            for (Book book : catalogue.values()) {
                 String title = book.getTitle();
                 String author = book.getAuthor();
                 String isbn = book.getIsbn();
-                boolean isAvailable = book.isAvailable();
-                LocalDateTime localDateTime = book.getBookReturnDueDate();
-                int overDueState = book.getOverDueState();
-                int notificationState = book.getNotificationState();
-                String memberEmail = book.getMemberEmail();
-                writer.write(title + ", " + author + ", " + isbn + ", " + isAvailable + ", " +
-                        localDateTime + ", " + overDueState + ", " + notificationState + ", " + memberEmail);
-                writer.newLine();
+                // Write one line per copy, repeating the bibliographic fields
+                int slots = book.getCopySlots();
+                for (int i = 0; i < slots; i++) {
+                    if (book.isWithdrawn(i)) {
+                        continue;
+                    }
+                    boolean isAvailable = book.isAvailable(i);
+                    LocalDateTime localDateTime = book.getBookReturnDueDate(i);
+                    int overDueState = book.getOverDueState(i);
+                    int notificationState = book.getNotificationState(i);
+                    Member borrower = memberRoll.get(book.getMemberId(i));
+                    String memberEmail = borrower == null ? null : borrower.getEmail();
+                    writer.write(title + ", " + author + ", " + isbn + ", " + isAvailable + ", " +
+                            localDateTime + ", " + overDueState + ", " + notificationState + ", " + memberEmail);
+                    writer.newLine();
+                }
             }
             writer.close();
             System.out.println("Books have been saved to " + BOOKS_FILE);
@@ -125,7 +580,7 @@ public class Library {
             e.printStackTrace();
         }
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(MEMBERS_FILE))) {
-            for (Member member : members) {
+            for (Member member : memberRoll.values()) {
                 String name = member.getName();
                 String email = member.getEmail();
                 int fines = member.getFines();
@@ -138,38 +593,235 @@ public class Library {
             System.err.println("An error occurred while saving members: " + e.getMessage());
             e.printStackTrace();
         }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(HOLDS_FILE))) {
+            for (Map.Entry<String, List<String>> queue : listHoldQueues().entrySet()) {
+                for (String memberName : queue.getValue()) {
+                    writer.write(queue.getKey() + ", " + memberName);
+                    writer.newLine();
+                }
+            }
+            System.out.println("Holds have been saved to " + HOLDS_FILE);
+        } catch (IOException e) {
+            System.err.println("An error occurred while saving holds: " + e.getMessage());
+            e.printStackTrace();
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(LEDGER_FILE))) {
+            for (LedgerEntry entry : listLedgerEntries()) {
+                writer.write(entry.getTime() + ", " + entry.getType() + ", " + entry.getMemberName() + ", " + entry.getIsbn() + ", " + entry.getAmount() + ", " + entry.getBalance());
+                writer.newLine();
+            }
+            System.out.println("Fines ledger has been saved to " + LEDGER_FILE);
+        } catch (IOException e) {
+            System.err.println("An error occurred while saving the fines ledger: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lists the ledger entries of every member, grouped by member in the order members were added.
+     * 
+     * @return A list of all ledger entries.
+     */
+    private List<LedgerEntry> listLedgerEntries() {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (Member member : memberRoll.values()) {
+            entries.addAll(ledger.listEntries(member));
+        }
+        return entries;
+    }
+
+    /**
+     * Lists the names of the members in every hold queue, leaving out members removed since placing their hold.
+     * 
+     * @return The member names of each non-empty hold queue in queue order, keyed by the ISBN of the book.
+     */
+    private Map<String, List<String>> listHoldQueues() {
+        Map<String, List<String>> queues = new LinkedHashMap<>();
+        for (Long key : holds.keySet()) {
+            Book book = books.get(key);
+            if (book == null) {
+                continue;
+            }
+            List<String> names = new ArrayList<>();
+            for (Member member : listHolds(book.getIsbn())) {
+                if (members.get(memberKey(member.getName())) == member) {
+                    names.add(member.getName());
+                }
+            }
+            if (!names.isEmpty()) {
+                queues.put(book.getIsbn(), names);
+            }
+        }
+        return queues;
+    }
+
+    /**
+     * Checks whether the snapshot file exists and is at least as recent as the text files.
+     * 
+     * @return true if the snapshot should be loaded instead of the text files.
+     */
+    private boolean snapshotIsCurrent() {
+        File snapshot = new File(SNAPSHOT_FILE);
+        if (!snapshot.isFile()) {
+            return false;
+        }
+        return snapshot.lastModified() >= new File(BOOKS_FILE).lastModified() && snapshot.lastModified() >= new File(MEMBERS_FILE).lastModified()
+                && snapshot.lastModified() >= new File(HOLDS_FILE).lastModified() && snapshot.lastModified() >= new File(LEDGER_FILE).lastModified();
+    }
+
+    /**
+     * Adds a loaded book to the library and its indexes, or adds its copies to the book already loaded with the same ISBN.
+     * 
+     * @param book The loaded book.
+     * @return The first copy of the loaded book in the library.
+     */
+    private BookCopy loadBook(Book book) {
+        Book existing = books.putIfAbsent(book.getPackedIsbn(), book);
+        if (existing == null) {
+            indexBook(book);
+            return new BookCopy(book, 0);
+        }
+        return new BookCopy(existing, existing.addCopiesOf(book));
+    }
+
+    /**
+     * Adds a loaded hold to the end of the hold queue of a book, unless the book or member is no longer in the library.
+     * 
+     * @param isbn       The ISBN of the book held.
+     * @param memberName The name of the member who placed the hold.
+     */
+    private void loadHold(String isbn, String memberName) {
+        Member member = members.get(memberKey(memberName));
+        if (member != null && books.containsKey(Isbn.pack(isbn))) {
+            holds.computeIfAbsent(Isbn.pack(isbn), key -> new ArrayDeque<>()).add(member);
+        }
+    }
+
+    /**
+     * Adds a loaded ledger entry to the history of its member, unless the member is no longer in the library.
+     * 
+     * @param entry The loaded entry.
+     */
+    private void loadLedgerEntry(LedgerEntry entry) {
+        Member member = members.get(memberKey(entry.getMemberName()));
+        if (member != null) {
+            ledger.load(member, entry);
+        }
+    }
+
+    /**
+     * Adds a loaded member to the library and its indexes unless the name is already present.
+     * <p>
+     * A member loaded from the snapshot keeps its id, since the copies it borrowed refer to it by id.
+     * 
+     * @param member The loaded member.
+     */
+    private void loadMember(Member member) {
+        if (members.putIfAbsent(memberKey(member.getName()), member) == null) {
+            membersByEmail.putIfAbsent(memberKey(member.getEmail()), member);
+            if (member.getId() == 0 || memberRoll.containsKey(member.getId())) {
+                member.setId(nextMemberId.incrementAndGet());
+            } else {
+                nextMemberId.accumulateAndGet(member.getId(), Math::max);
+            }
+            memberRoll.put(member.getId(), member);
+            ledger.track(member);
+        }
     }
 
     /**
      * Adds a book to the library.
+     * <p>
+     * If the ISBN is already in the library, the copies of the book are added to the existing record instead.
      * 
      * @param book The book to be added to the library.
-     * @throws IllegalArgumentException if the book is already in the library.
+     * @throws IllegalArgumentException if a book with a different title and the same ISBN is already in the library.
      */
     public void addBook(Book newBook) {
-        for (Book book : books) {
-            if (book.getIsbn().equalsIgnoreCase(newBook.getIsbn())) {
-                throw new IllegalArgumentException("Book already in library.");
+        Lock lock = lockBook(newBook.getPackedIsbn());
+        try {
+            Book existing = books.get(newBook.getPackedIsbn());
+            if (existing != null && !existing.getTitle().equalsIgnoreCase(newBook.getTitle())) {
+                throw new IllegalArgumentException("A different book with this ISBN is already in library.");
+            }
+            journal.recordAddBook(newBook);
+            if (existing != null) {
+                existing.addCopiesOf(newBook);
+                fillHolds(existing);
+            } else {
+                books.put(newBook.getPackedIsbn(), newBook);
+                indexBook(newBook);
+            }
+            assert books.containsKey(newBook.getPackedIsbn()) : "Book not added to the library.";
+        } finally {
+            unlockBook(lock);
+        }
+        compactIfDue();
+    }
+
+    /**
+     * Adds a batch of books to the library in a single commit.
+     * <p>
+     * Changes wait while the batch is indexed, and the batch is made durable by compacting into a new snapshot
+     * instead of journaling every book.
+     * 
+     * @param newBooks The books to be added, with distinct ISBNs.
+     * @return The books that were not added because their ISBN is already in the library.
+     */
+    public List<Book> addBooks(List<Book> newBooks) {
+        List<Book> added = new ArrayList<>(newBooks.size());
+        List<Book> rejected = new ArrayList<>();
+        compactionLock.writeLock().lock();
+        try {
+            for (Book book : newBooks) {
+                if (books.putIfAbsent(book.getPackedIsbn(), book) == null) {
+                    book.attach(nextBookId.incrementAndGet(), loans);
+                    catalogue.put(book.getId(), book);
+                    added.add(book);
+                } else {
+                    rejected.add(book);
+                }
+            }
+            titleIndex.addAll(added);
+            authorIndex.addAll(added);
+            termIndex.addAll(added);
+            if (!added.isEmpty()) {
+                compact();
             }
+        } finally {
+            compactionLock.writeLock().unlock();
         }
-        books.add(newBook);
-        assert books.contains(newBook) : "Book not added to the library.";
+        return rejected;
     }
 
     /**
      * Adds a member to the library.
      * 
      * @param member The member to be added to the library.
-     * @throws IllegalArgumentException if the member name already exists in the library.
+     * @throws IllegalArgumentException if the member name or email already exists in the library.
      */
     public void addMember(Member newMember) {
-        for (Member member : members) {
-            if (member.getName().equalsIgnoreCase(newMember.getName())) {
+        String nameKey = memberKey(newMember.getName());
+        String emailKey = memberKey(newMember.getEmail());
+        lockMembers();
+        try {
+            if (members.containsKey(nameKey)) {
                 throw new IllegalArgumentException("Member name already exists.");
             }
+            if (membersByEmail.containsKey(emailKey)) {
+                throw new IllegalArgumentException("Member email already exists.");
+            }
+            journal.recordAddMember(newMember);
+            newMember.setId(nextMemberId.incrementAndGet());
+            memberRoll.put(newMember.getId(), newMember);
+            membersByEmail.put(emailKey, newMember);
+            members.put(nameKey, newMember);
+            ledger.track(newMember);
+            assert members.get(nameKey) == newMember : "Member not added to the library.";
+        } finally {
+            unlockMembers();
         }
-        members.add(newMember);
-        assert members.contains(newMember) : "Member not added to the library.";
+        compactIfDue();
     }
 
     /**
@@ -179,18 +831,21 @@ public class Library {
      * @throws IllegalArgumentException If the member is not found.
      */
     public void removeMember(String memberName) {
-        boolean found = false;
-        for (Member member : members) {
-            if (member.getName().equalsIgnoreCase(memberName)) {
-                members.remove(member);
-                found = true;
-                break;
+        lockMembers();
+        try {
+            Member member = members.remove(memberKey(memberName));
+            if (member == null) {
+                throw new IllegalArgumentException("Member not found.");
             }
+            membersByEmail.remove(memberKey(member.getEmail()), member);
+            memberRoll.remove(member.getId());
+            ledger.remove(member);
+            journal.recordRemoveMember(memberName);
+            assert !members.containsKey(memberKey(memberName)) : "Member not removed from the library.";
+        } finally {
+            unlockMembers();
         }
-        if (!found) {
-            throw new IllegalArgumentException("Member not found.");
-        }
-        assert !members.stream().anyMatch(member -> member.getName().equalsIgnoreCase(memberName)) : "Member not removed from the library.";
+        compactIfDue();
     }
 
     /**
@@ -200,18 +855,19 @@ public class Library {
      * @throws IllegalArgumentException If the book is not found.
      */
     public void removeBook(String bookIsbn) {
-        boolean found = false;
-        for (Book book : books) {
-            if (book.getIsbn().equalsIgnoreCase(bookIsbn)) {
-                books.remove(book);
-                found = true;
-                break;
+        Lock lock = lockBook(bookIsbn);
+        try {
+            Book book = books.remove(Isbn.pack(bookIsbn));
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found.");
             }
+            unindexBook(book);
+            journal.recordRemoveBook(bookIsbn);
+            assert !books.containsKey(Isbn.pack(bookIsbn)) : "Book not removed from the library.";
+        } finally {
+            unlockBook(lock);
         }
-        if (!found) {
-            throw new IllegalArgumentException("Book not found.");
-        }
-        assert !books.stream().anyMatch(book -> book.getIsbn().equalsIgnoreCase(bookIsbn)) : "Book not removed from the library.";
+        compactIfDue();
     }
 
     /**
@@ -222,12 +878,26 @@ public class Library {
      * @throws IllegalArgumentException If member is not found.
      */
     public Member checkMember(String memberName) {
-        for (Member member : members) {
-            if (member.getName().equalsIgnoreCase(memberName)) {
-                return member;
-            }
+        Member member = members.get(memberKey(memberName));
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found.");
         }
-        throw new IllegalArgumentException("Member not found.");
+        return member;
+    }
+
+    /**
+     * Checks for a member by exact email match.
+     * 
+     * @param email The email of the member to check.
+     * @return The member if found.
+     * @throws IllegalArgumentException If member is not found.
+     */
+    public Member checkMemberByEmail(String email) {
+        Member member = membersByEmail.get(memberKey(email));
+        if (member == null) {
+            throw new IllegalArgumentException("Member not found.");
+        }
+        return member;
     }
 
     /**
@@ -238,7 +908,7 @@ public class Library {
      */
     public List<Member> searchMember(String memberName) {
         List<Member> results = new ArrayList<>();
-        for (Member member : members) {
+        for (Member member : memberRoll.values()) {
             if (member.getName().toLowerCase().contains(memberName.toLowerCase())) {
                 results.add(member);
             }
@@ -253,12 +923,9 @@ public class Library {
      * @return A list of matching books.
      */
     public List<Book> searchBooksByTitle(String title) {
-        List<Book> results = new ArrayList<>();
-        for (Book book : books) {
-            if (book.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                results.add(book);
-            }
-        }
+        long start = System.nanoTime();
+        List<Book> results = titleIndex.search(title);
+        titleSearchTimes.recordSince(start);
         return results;
     }
 
@@ -269,28 +936,96 @@ public class Library {
      * @return A list of books by the specified author.
      */
     public List<Book> searchBooksByAuthor(String author) {
-        List<Book> results = new ArrayList<>();
-        for (Book book : books) {
-            if (book.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                results.add(book);
-            }
-        }
+        long start = System.nanoTime();
+        List<Book> results = authorIndex.search(author);
+        authorSearchTimes.recordSince(start);
         return results;
     }
 
     /**
-     * Searches for a book by its ISBN.
+     * Searches for the books whose titles and authors best match a query, tolerating typos and an unfinished last word.
      * 
-     * @param isbn The ISBN of the book to search for.
-     * @return The book if found, otherwise null.
+     * @param query The words of the title or author to search for.
+     * @param limit The most books to return.
+     * @return The best matching books, most relevant first.
+     */
+    public List<Book> searchBooksRanked(String query, int limit) {
+        long start = System.nanoTime();
+        List<Book> results = termIndex.search(query, limit);
+        rankedSearchTimes.recordSince(start);
+        return results;
+    }
+
+    /**
+     * Searches for a book by its ISBN.
+     * 
+     * @param isbn The ISBN of the book to search for.
+     * @return The book if found, otherwise null.
      */
     public Book searchBooksByIsbn(String isbn) {
-        for (Book book : books) {
-            if (book.getIsbn().equalsIgnoreCase(isbn)) {
-                return book;
+        long start = System.nanoTime();
+        Book book = findBook(isbn);
+        isbnSearchTimes.recordSince(start);
+        return book;
+    }
+
+    /**
+     * Looks a book up by its ISBN without recording a search.
+     * 
+     * @param isbn The ISBN of the book.
+     * @return The book if found, otherwise null.
+     */
+    private Book findBook(String isbn) {
+        return books.get(Isbn.pack(isbn));
+    }
+
+    /**
+     * Attaches a book to the library under the next id and adds it to the catalogue and the title and author search indexes.
+     * <p>
+     * A book loaded from the snapshot is already attached and keeps its id, since its borrowed copies are keyed by it in the loan table.
+     * 
+     * @param book The book to be indexed.
+     */
+    private void indexBook(Book book) {
+        if (book.getId() == 0) {
+            book.attach(nextBookId.incrementAndGet(), loans);
+        } else {
+            nextBookId.accumulateAndGet(book.getId(), Math::max);
+        }
+        catalogue.put(book.getId(), book);
+        titleIndex.add(book);
+        authorIndex.add(book);
+        termIndex.add(book);
+    }
+
+    /**
+     * Removes a book from the catalogue, the search indexes, the hold queues and the borrowed copies.
+     * 
+     * @param book The book to be removed.
+     */
+    private void unindexBook(Book book) {
+        holds.remove(book.getPackedIsbn());
+        catalogue.remove(book.getId());
+        titleIndex.remove(book);
+        authorIndex.remove(book);
+        termIndex.remove(book);
+        int slots = book.getCopySlots();
+        for (int i = 0; i < slots; i++) {
+            if (book.isOnLoan(i)) {
+                removeLoan(new BookCopy(book, i), memberRoll.get(book.getMemberId(i)));
+                loans.remove(LoanTable.key(book.getId(), i));
             }
         }
-        return null;
+    }
+
+    /**
+     * Case-folds a member name or email for use as an index key.
+     * 
+     * @param value The name or email to fold.
+     * @return The case-folded key.
+     */
+    static String memberKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -298,22 +1033,80 @@ public class Library {
      * 
      * @param isbn       The ISBN of the book to be checked out.
      * @param memberName The name of the member checking out the book.
+     * @param dueDays    The number of days until the book should be returned.
      * @throws IllegalStateException If the book is not available for checkout.
      */
     public void checkoutBook(String isbn, String memberName, int dueDays) {
-        Book book = searchBooksByIsbn(isbn);
-        if (book == null) {
-            throw new IllegalStateException("Book not found.");
+        checkoutBook(isbn, memberName, LocalDateTime.now().plus(dueDays, ChronoUnit.DAYS));
+    }
+
+    /**
+     * Checks out a book to a member with a specific due date.
+     * 
+     * @param isbn       The ISBN of the book to be checked out.
+     * @param memberName The name of the member checking out the book.
+     * @param dueDate    The due date for returning the book.
+     * @throws IllegalStateException If the book is not available for checkout.
+     */
+    void checkoutBook(String isbn, String memberName, LocalDateTime dueDate) {
+        checkoutBook(isbn, checkMember(memberName), dueDate);
+    }
+
+    /**
+     * Checks out the first available copy of a book to a member that has already been looked up.
+     * <p>
+     * Due dates are kept to the second, the precision they are journaled with.
+     * 
+     * @param isbn    The ISBN of the book to be checked out.
+     * @param member  The member checking out the book.
+     * @param dueDate The due date for returning the book.
+     * @throws IllegalStateException If no copy of the book is available for checkout.
+     */
+    private void checkoutBook(String isbn, Member member, LocalDateTime dueDate) {
+        long start = System.nanoTime();
+        LocalDateTime due = dueDate.truncatedTo(ChronoUnit.SECONDS);
+        Lock lock = lockBook(isbn);
+        try {
+            Book book = findBook(isbn);
+            if (book == null) {
+                throw new IllegalStateException("Book not found.");
+            }
+            int available = book.findAvailableCopy();
+            if (available < 0) {
+                throw new IllegalStateException("Book is not available for checkout.");
+            }
+            BookCopy copy = lendCopy(book, available, member, due);
+            assert !copy.isAvailable() : "Copy availability not updated after checkout.";
+            checkouts.increment();
+        } finally {
+            unlockBook(lock);
+            checkoutTimes.recordSince(start);
         }
-        Member member = checkMember(memberName);
-        if (!book.isAvailable()) {
-            throw new IllegalStateException("Book is not available for checkout.");
+        compactIfDue();
+    }
+
+    /**
+     * Lends a copy to a member, journals the checkout and fills the member's hold on the book if they placed one.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param book    The book to be checked out.
+     * @param index   The index of an available copy of the book.
+     * @param member  The member checking out the copy.
+     * @param dueDate The due date for returning the copy, to the second.
+     * @return The copy lent.
+     */
+    private BookCopy lendCopy(Book book, int index, Member member, LocalDateTime dueDate) {
+        journal.recordCheckout(book.getIsbn(), member.getName(), dueDate);
+        book.lendCopy(index, member.getId(), dueDate);
+        BookCopy copy = new BookCopy(book, index);
+        addLoan(copy, member);
+        queueDueLoan(new DueLoan(copy, member, dueDate));
+        Deque<Member> queue = holds.get(book.getPackedIsbn());
+        if (queue != null && queue.remove(member) && queue.isEmpty()) {
+            holds.remove(book.getPackedIsbn());
         }
-        book.toggleAvailability();
-        book.setBookReturnDueDate(dueDays);
-        book.setMemberEmail(member.getEmail());
-        borrowedBooks.put(book, member);
-        assert !book.isAvailable() : "Book availability not updated after checkout.";
+        return copy;
     }
 
     /**
@@ -321,35 +1114,607 @@ public class Library {
      * 
      * @param isbn       The ISBN of the book to be returned.
      * @param memberName The name of the member returning the book.
+     * @return The member the returned copy was checked out to from the hold queue, or null if no hold was filled.
      * @throws IllegalStateException If the book is not borrowed or not borrowed by the specified member.
      */
-    public void returnBook(String isbn, String memberName) {
-        Book book = searchBooksByIsbn(isbn);
+    public Member returnBook(String isbn, String memberName) {
+        return returnBook(isbn, checkMember(memberName));
+    }
+
+    /**
+     * Returns a copy of a book borrowed by a member that has already been looked up.
+     * 
+     * @param isbn   The ISBN of the book to be returned.
+     * @param member The member returning the book.
+     * @return The member the returned copy was checked out to from the hold queue, or null if no hold was filled.
+     * @throws IllegalStateException If the book is not borrowed or not borrowed by the specified member.
+     */
+    private Member returnBook(String isbn, Member member) {
+        long start = System.nanoTime();
+        Member filled;
+        Lock lock = lockBook(isbn);
+        try {
+            Book book = findBook(isbn);
+            if (book == null) {
+                throw new IllegalStateException("Book not found.");
+            }
+            if (book.getAvailableCopies() == book.getCopyCount()) {
+                throw new IllegalStateException("Book is not borrowed.");
+            }
+            int borrowed = book.findCopyLentTo(member.getId());
+            if (borrowed < 0) {
+                throw new IllegalStateException("Book is not borrowed by this member.");
+            }
+            journal.recordReturn(book.getIsbn(), member.getName());
+            book.returnCopy(borrowed);
+            BookCopy copy = new BookCopy(book, borrowed);
+            removeLoan(copy, member);
+            assert copy.isAvailable() : "Copy availability not updated after return.";
+            returns.increment();
+            filled = fillHolds(book);
+        } finally {
+            unlockBook(lock);
+            returnTimes.recordSince(start);
+        }
+        compactIfDue();
+        return filled;
+    }
+
+    /**
+     * Places a hold on a book that has no copy available, queuing the member for the next copy returned.
+     * 
+     * @param isbn       The ISBN of the book.
+     * @param memberName The name of the member placing the hold.
+     * @throws IllegalArgumentException If the member is not found, already has a hold on the book or already has a copy checked out.
+     * @throws IllegalStateException    If the book is not found or a copy is available for checkout.
+     */
+    public void placeHold(String isbn, String memberName) {
+        Member member = checkMember(memberName);
+        Lock lock = lockBook(isbn);
+        try {
+            Book book = findBook(isbn);
+            if (book == null) {
+                throw new IllegalStateException("Book not found.");
+            }
+            if (book.isAvailable()) {
+                throw new IllegalStateException("Book is available for checkout.");
+            }
+            if (book.findCopyLentTo(member.getId()) >= 0) {
+                throw new IllegalArgumentException("Member already has a copy of this book checked out.");
+            }
+            Deque<Member> queue = holds.computeIfAbsent(Isbn.pack(isbn), key -> new ArrayDeque<>());
+            if (queue.contains(member)) {
+                throw new IllegalArgumentException("Member already has a hold on this book.");
+            }
+            journal.recordHold(book.getIsbn(), member.getName());
+            queue.add(member);
+        } finally {
+            unlockBook(lock);
+        }
+        compactIfDue();
+    }
+
+    /**
+     * Cancels a member's hold on a book.
+     * 
+     * @param isbn       The ISBN of the book.
+     * @param memberName The name of the member who placed the hold.
+     * @throws IllegalArgumentException If the member is not found.
+     * @throws IllegalStateException    If the member has no hold on the book.
+     */
+    public void cancelHold(String isbn, String memberName) {
+        Member member = checkMember(memberName);
+        Lock lock = lockBook(isbn);
+        try {
+            Deque<Member> queue = holds.get(Isbn.pack(isbn));
+            if (queue == null || !queue.remove(member)) {
+                throw new IllegalStateException("Member has no hold on this book.");
+            }
+            if (queue.isEmpty()) {
+                holds.remove(Isbn.pack(isbn));
+            }
+            journal.recordCancelHold(isbn, member.getName());
+        } finally {
+            unlockBook(lock);
+        }
+        compactIfDue();
+    }
+
+    /**
+     * Lists the members waiting for a book in the order their holds will be filled.
+     * 
+     * @param isbn The ISBN of the book.
+     * @return A list of the members holding the book, empty if there are none.
+     */
+    public List<Member> listHolds(String isbn) {
+        Lock lock = lockBook(isbn);
+        try {
+            Deque<Member> queue = holds.get(Isbn.pack(isbn));
+            return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+        } finally {
+            unlockBook(lock);
+        }
+    }
+
+    /**
+     * Checks out available copies of a book to the members at the head of its hold queue and notifies them.
+     * <p>
+     * Each hold is taken from the head of the queue in constant time. Members removed from the library since placing their hold are skipped.
+     * While the journal is replayed holds are not filled, since the checkouts that filled them are replayed from the journal.
+     * Must be called while holding the lock of the book, so the holds filled are reported by the caller once the lock is released.
+     * 
+     * @param book The book with copies that may be available.
+     * @return The last member a copy was checked out to from the hold queue, or null if no hold was filled.
+     */
+    private Member fillHolds(Book book) {
+        Deque<Member> queue = holds.get(book.getPackedIsbn());
+        if (queue == null || replaying) {
+            return null;
+        }
+        Member filled = null;
+        while (!queue.isEmpty() && book.isAvailable()) {
+            Member member = queue.peekFirst();
+            if (members.get(memberKey(member.getName())) != member) {
+                queue.pollFirst();
+                continue;
+            }
+            LocalDateTime due = LocalDateTime.now().plus(FineProcessing.DUEDAYS, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+            BookCopy copy = lendCopy(book, book.findAvailableCopy(), member, due); // Removes the filled hold from the queue
+            notifications.publishHold(copy, member);
+            filled = member;
+        }
+        if (queue.isEmpty()) {
+            holds.remove(book.getPackedIsbn());
+        }
+        return filled;
+    }
+
+    /**
+     * Applies a batch of checkouts and returns in one pass.
+     * <p>
+     * Each distinct member is looked up once, and the transactions are then applied strictly in the order given, so a return followed by
+     * another member's checkout of the same book succeeds as it would at the desk. A failed transaction does not stop the batch.
+     * 
+     * @param transactions The transactions to apply.
+     * @return The result of every transaction, in the order given.
+     */
+    public List<TransactionResult> processTransactions(List<Transaction> transactions) {
+        Map<String, Member> resolved = new HashMap<>(); // Member of each distinct case-folded name, null if not found
+        List<TransactionResult> results = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            String key = memberKey(transaction.getMemberName());
+            Member member = resolved.containsKey(key) ? resolved.get(key) : members.get(key);
+            resolved.put(key, member);
+            if (member == null) {
+                results.add(new TransactionResult(transaction, false, "Member not found."));
+                continue;
+            }
+            try {
+                if (transaction.getType() == Transaction.Type.CHECKOUT) {
+                    checkoutBook(transaction.getIsbn(), member, LocalDateTime.now().plus(transaction.getDueDays(), ChronoUnit.DAYS));
+                    results.add(new TransactionResult(transaction, true, "Book checked out successfully."));
+                } else {
+                    returnBook(transaction.getIsbn(), member);
+                    results.add(new TransactionResult(transaction, true, "Book returned successfully."));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                results.add(new TransactionResult(transaction, false, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies an overdue fine to the member who borrowed a copy and extends its due date.
+     * <p>
+     * The fine is only applied if the copy is still borrowed by the member and past its due date once the book is locked.
+     * 
+     * @param copy          The overdue copy.
+     * @param member        The member who borrowed the copy.
+     * @param fine          The amount of the fine.
+     * @param extensionDays The number of days the due date is extended by.
+     * @return true if the fine was applied, false if the copy was returned or its due date changed in the meantime.
+     */
+    public boolean fineBook(BookCopy copy, Member member, int fine, int extensionDays) {
+        DueLoan extended = chargeOverdueCopy(copy, member, fine, extensionDays);
+        if (extended == null) {
+            return false;
+        }
+        queueDueLoan(extended);
+        compactIfDue();
+        return true;
+    }
+
+    /**
+     * Applies an overdue fine as part of a sweep, like fineBook, but leaves queueing the extended loan to the sweep.
+     * <p>
+     * The journal is not compacted either, so a sweep applying many fines compacts it at most once, in finishSweep.
+     * 
+     * @param copy          The overdue copy.
+     * @param member        The member who borrowed the copy.
+     * @param fine          The amount of the fine.
+     * @param extensionDays The number of days the due date is extended by.
+     * @return The loan with its extended due date for the sweep to queue, or null if the copy was returned or its due date changed in the meantime.
+     */
+    DueLoan chargeOverdueCopy(BookCopy copy, Member member, int fine, int extensionDays) {
+        Lock lock = lockBook(copy.getBook().getPackedIsbn());
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (copy.getMemberId() != member.getId() || now.isBefore(copy.getBookReturnDueDate())) {
+                return null;
+            }
+            return applyFine(copy, member, fine, now.plus(extensionDays, ChronoUnit.DAYS), now);
+        } finally {
+            unlockBook(lock);
+        }
+    }
+
+    /**
+     * Withdraws a copy that has not been returned from the library.
+     * <p>
+     * The copy is only withdrawn if it is still borrowed by the member and past its due date once the book is locked.
+     * The book is removed from the library once its last copy is withdrawn.
+     * 
+     * @param copy   The overdue copy.
+     * @param member The member who borrowed the copy.
+     * @return true if the copy was withdrawn, false if the copy was returned or its due date changed in the meantime.
+     */
+    public boolean removeOverdueBook(BookCopy copy, Member member) {
+        if (!withdrawOverdueCopy(copy, member)) {
+            return false;
+        }
+        compactIfDue();
+        return true;
+    }
+
+    /**
+     * Withdraws a copy that has not been returned as part of a sweep, like removeOverdueBook, but leaves compacting the journal to
+     * finishSweep.
+     * 
+     * @param copy   The overdue copy.
+     * @param member The member who borrowed the copy.
+     * @return true if the copy was withdrawn, false if the copy was returned or its due date changed in the meantime.
+     */
+    boolean withdrawOverdueCopy(BookCopy copy, Member member) {
+        Lock lock = lockBook(copy.getBook().getPackedIsbn());
+        try {
+            if (copy.getMemberId() != member.getId() || LocalDateTime.now().isBefore(copy.getBookReturnDueDate())) {
+                return false;
+            }
+            journal.recordWithdrawCopy(copy.getBook().getIsbn(), member.getName());
+            withdrawCopy(copy, member);
+        } finally {
+            unlockBook(lock);
+        }
+        return true;
+    }
+
+    /**
+     * Starts a sweep applying many fines and withdrawals at once.
+     * <p>
+     * Journal records are forced to disk together once the sweep is complete rather than in small batches, since a sweep that is cut
+     * short leaves the remaining loans due and they are swept again once the library is loaded.
+     */
+    void beginSweep() {
+        journal.deferSync();
+    }
+
+    /**
+     * Completes a sweep started by beginSweep, forcing its journal records to disk and compacting the journal if it has grown enough.
+     * 
+     * @throws IllegalStateException If the journal could not be forced to disk.
+     */
+    void finishSweep() {
+        try {
+            journal.resumeSync();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to the journal: " + e.getMessage(), e);
+        }
+        compactIfDue();
+    }
+
+    /**
+     * Marks that the member who borrowed a copy has been notified of its latest overdue fine.
+     * 
+     * @param copy The borrowed copy.
+     * @return true if a notification is due and has been claimed, false if the member is already notified or the copy was returned.
+     */
+    public boolean claimNotification(BookCopy copy) {
+        Lock lock = lockBook(copy.getBook().getPackedIsbn());
+        try {
+            if (copy.getMemberId() == LoanTable.NO_MEMBER || copy.getOverDueState() <= copy.getNotificationState()) {
+                return false;
+            }
+            copy.getBook().incrementNotificationState(copy.getCopy());
+            return true;
+        } finally {
+            unlockBook(lock);
+        }
+    }
+
+    /**
+     * Applies an overdue fine by ISBN and member name with a specific extended due date and charge time.
+     * 
+     * @param isbn       The ISBN of the overdue book.
+     * @param memberName The name of the member who borrowed the book.
+     * @param fine       The amount of the fine.
+     * @param dueDate    The extended due date of the book.
+     * @param chargedAt  When the fine was charged.
+     * @throws IllegalStateException If the book is not found or not borrowed by the member.
+     */
+    void fineBook(String isbn, String memberName, int fine, LocalDateTime dueDate, LocalDateTime chargedAt) {
+        Lock lock = lockBook(isbn);
+        try {
+            Member member = checkMember(memberName);
+            queueDueLoan(applyFine(findBorrowedCopy(isbn, member), member, fine, dueDate, chargedAt));
+        } finally {
+            unlockBook(lock);
+        }
+    }
+
+    /**
+     * Withdraws the copy of a book borrowed by a member, by ISBN and member name.
+     * 
+     * @param isbn       The ISBN of the overdue book.
+     * @param memberName The name of the member who borrowed the book.
+     * @throws IllegalStateException If the book is not found or not borrowed by the member.
+     */
+    void withdrawCopy(String isbn, String memberName) {
+        Lock lock = lockBook(isbn);
+        try {
+            Member member = checkMember(memberName);
+            withdrawCopy(findBorrowedCopy(isbn, member), member);
+        } finally {
+            unlockBook(lock);
+        }
+    }
+
+    /**
+     * Finds the copy of a book borrowed by a member.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param isbn   The ISBN of the book.
+     * @param member The member who borrowed the book.
+     * @return The borrowed copy.
+     * @throws IllegalStateException If the book is not found or not borrowed by the member.
+     */
+    private BookCopy findBorrowedCopy(String isbn, Member member) {
+        Book book = findBook(isbn);
         if (book == null) {
             throw new IllegalStateException("Book not found.");
         }
+        int borrowed = book.findCopyLentTo(member.getId());
+        if (borrowed < 0) {
+            throw new IllegalStateException("Book is not borrowed by this member.");
+        }
+        return new BookCopy(book, borrowed);
+    }
+
+    /**
+     * Withdraws a borrowed copy and removes the book from the library once no copies are left.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param copy   The copy to withdraw.
+     * @param member The member who borrowed the copy.
+     */
+    private void withdrawCopy(BookCopy copy, Member member) {
+        Book book = copy.getBook();
+        book.withdrawCopy(copy.getCopy());
+        removeLoan(copy, member);
+        if (book.getCopyCount() == 0) {
+            books.remove(book.getPackedIsbn(), book);
+            unindexBook(book);
+        }
+    }
+
+    /**
+     * Increments the overdue state of a copy and extends its due date, charges the fine to the member in the ledger and journals the change.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param copy      The overdue copy.
+     * @param member    The member who borrowed the copy.
+     * @param fine      The amount of the fine.
+     * @param dueDate   The extended due date of the copy.
+     * @param chargedAt When the fine was charged.
+     * @return The loan with its extended due date, to be queued for fine processing.
+     */
+    private DueLoan applyFine(BookCopy copy, Member member, int fine, LocalDateTime dueDate, LocalDateTime chargedAt) {
+        LocalDateTime due = dueDate.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime charged = chargedAt.truncatedTo(ChronoUnit.SECONDS);
+        journal.recordFine(copy.getBook().getIsbn(), member.getName(), fine, due, charged);
+        copy.getBook().extendLoan(copy.getCopy(), due);
+        ledger.charge(member, copy.getBook().getIsbn(), fine, charged);
+        return new DueLoan(copy, member, due);
+    }
+
+    /**
+     * Pays an amount off a member's fines.
+     * 
+     * @param memberName The name of the member paying.
+     * @param amount     The amount paid.
+     * @return The member who paid.
+     * @throws IllegalArgumentException If member is not found.
+     */
+    public Member payFine(String memberName, int amount) {
+        return payFine(memberName, amount, LocalDateTime.now());
+    }
+
+    /**
+     * Pays an amount off a member's fines at a specific time.
+     * <p>
+     * The payment is written to the audit log, except while the journal is replayed, since replayed payments were logged when they were made.
+     * 
+     * @param memberName The name of the member paying.
+     * @param amount     The amount paid.
+     * @param paidAt     When the payment was made.
+     * @return The member who paid.
+     * @throws IllegalArgumentException If member is not found.
+     */
+    Member payFine(String memberName, int amount, LocalDateTime paidAt) {
         Member member = checkMember(memberName);
-        if (book.isAvailable()) {
-            throw new IllegalStateException("Book is not borrowed.");
+        LocalDateTime paid = paidAt.truncatedTo(ChronoUnit.SECONDS);
+        compactionLock.readLock().lock();
+        try {
+            journal.recordPayment(member.getName(), amount, paid);
+            ledger.pay(member, amount, paid);
+        } finally {
+            compactionLock.readLock().unlock();
         }
-        if (!borrowedBooks.get(book).equals(member)) {
-            throw new IllegalStateException("Book is not borrowed by this member.");
+        if (!replaying) {
+            writeLog(new AuditEvent(AuditEvent.Type.PAYMENT, member.getName(), null, amount, "Member: " + member.getName() + " payed R" + amount + " in fines."));
+        }
+        compactIfDue();
+        return member;
+    }
+
+    /**
+     * Opens a cursor over all the copies currently borrowed, soonest due first.
+     * <p>
+     * Takes a single scan of the loan table and sorts the loans by the due dates read in the scan, so sorting never goes back to the
+     * table. Loans of members who have since been removed are left out, as are copies returned or lent to someone else after the cursor
+     * was opened.
+     *
+     * @return A cursor over the borrowed copies with their respective borrowers.
+     */
+    public PageCursor<Map.Entry<BookCopy, Member>> openLoans() {
+        List<long[]> scanned = new ArrayList<>(); // Due date, copy key and member id of each loan
+        loans.forEach((key, memberId, dueEpoch, overDueState, notificationState) -> scanned.add(new long[] { dueEpoch, key, memberId }));
+        scanned.sort(Comparator.<long[]>comparingLong(loan -> loan[0]).thenComparingLong(loan -> loan[1]));
+        List<Map.Entry<BookCopy, Member>> borrowed = new ArrayList<>(scanned.size());
+        for (long[] loan : scanned) {
+            Book book = catalogue.get(LoanTable.bookIdOf(loan[1]));
+            Member member = memberRoll.get((int) loan[2]);
+            if (book != null && member != null) {
+                borrowed.add(new AbstractMap.SimpleImmutableEntry<>(new BookCopy(book, LoanTable.copyOf(loan[1])), member));
+            }
+        }
+        return new PageCursor<>(borrowed, loan -> loan.getKey().getMemberId() == loan.getValue().getId());
+    }
+
+    /**
+     * Lists the copies currently borrowed by a member.
+     * <p>
+     * Looks the loans up in the member's own index, so the cost grows with the member's loans rather than with all borrowed copies.
+     * 
+     * @param memberName The name of the member.
+     * @return A list of the copies borrowed by the member.
+     * @throws IllegalArgumentException If member is not found.
+     */
+    public List<BookCopy> listLoans(String memberName) {
+        Set<BookCopy> loans = loansByMember.get(checkMember(memberName));
+        return loans == null ? new ArrayList<>() : new ArrayList<>(loans);
+    }
+
+    /**
+     * Records a copy lent in the loan table as borrowed in the member's loans.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param copy   The borrowed copy.
+     * @param member The member who borrowed the copy.
+     */
+    private void addLoan(BookCopy copy, Member member) {
+        loansByMember.compute(member, (key, loans) -> {
+            Set<BookCopy> updated = loans == null ? ConcurrentHashMap.newKeySet() : loans;
+            updated.add(copy);
+            return updated;
+        });
+    }
+
+    /**
+     * Removes a copy from the loans of the member who borrowed it, dropping members left without loans.
+     * <p>
+     * Must be called while holding the lock of the book.
+     * 
+     * @param copy   The copy no longer borrowed.
+     * @param member The member who borrowed the copy, may be null if the member is no longer in the library.
+     */
+    private void removeLoan(BookCopy copy, Member member) {
+        if (member != null) {
+            loansByMember.computeIfPresent(member, (key, loans) -> {
+                loans.remove(copy);
+                return loans.isEmpty() ? null : loans;
+            });
+        }
+    }
+
+    /**
+     * Lists the members who owe fines.
+     * <p>
+     * Reads the ledger's index of members with an outstanding balance, so members who owe nothing are never visited.
+     * 
+     * @return A list of the members with a positive balance, in the order they were added.
+     */
+    public List<Member> listDebtors() {
+        return ledger.listDebtors();
+    }
+
+    /**
+     * Gets the fines statement of a member from the ledger.
+     * 
+     * @param memberName The name of the member.
+     * @return The member's ledger entries in the order they were recorded.
+     * @throws IllegalArgumentException If member is not found.
+     */
+    public List<LedgerEntry> getStatement(String memberName) {
+        return ledger.listEntries(checkMember(memberName));
+    }
+
+    /**
+     * Lists the loans queued for fine processing in due date order.
+     * <p>
+     * A loan is queued on checkout and again whenever a fine extends its due date. Entries for returned books and superseded due dates stay
+     * queued until they come due, and are then discarded by checking DueLoan.isCurrent.
+     * 
+     * @return A queue of loans that releases each loan once it comes due.
+     */
+    BlockingQueue<DueLoan> listDueLoans() {
+        return dueLoans;
+    }
+
+    /**
+     * Queues a loan for fine processing and wakes the fine sweep if the loan comes due before the loan it is waiting for.
+     * 
+     * @param loan The loan to queue.
+     */
+    private void queueDueLoan(DueLoan loan) {
+        dueLoans.add(loan);
+        if (fineJob != null) {
+            fineJob.wakeIn(loan.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Queues many loans for fine processing at once, such as the loans extended by a sweep, waking the fine sweep at most once.
+     * 
+     * @param loans The loans to queue.
+     */
+    void queueDueLoans(List<DueLoan> loans) {
+        if (loans.isEmpty()) {
+            return;
+        }
+        DueLoan earliest = loans.get(0);
+        for (DueLoan loan : loans) {
+            dueLoans.add(loan);
+            if (loan.getDueDate().isBefore(earliest.getDueDate())) {
+                earliest = loan;
+            }
+        }
+        if (fineJob != null) {
+            fineJob.wakeIn(earliest.getDelay(TimeUnit.MILLISECONDS));
         }
-        book.toggleAvailability();
-        book.resetOverDueState();
-        book.resetNotificationState();
-        book.setMemberEmail(null);
-        borrowedBooks.remove(book);
-        assert book.isAvailable() : "Book availability not updated after return.";
     }
 
     /**
-     * Lists all the books currently borrowed.
+     * Sets the sender used to deliver overdue notifications.
      * 
-     * @return A map of borrowed books with their respective borrowers.
+     * @param sender The sender used to deliver notifications.
      */
-    synchronized Map<Book, Member> listBorrowedBooks() {
-        return borrowedBooks;
+    public void setNotificationSender(NotificationSender sender) {
+        notifications.setSender(sender);
     }
 
     /**
@@ -358,7 +1723,7 @@ public class Library {
      * @return A list of all members.
      */
     public List<Member> listAllMembers() {
-        return members;
+        return new ArrayList<>(memberRoll.values());
     }
 
     /**
@@ -367,18 +1732,89 @@ public class Library {
      * @return A list of all books.
      */
     public List<Book> listAllBooks() {
-        return books;
+        return new ArrayList<>(catalogue.values());
     }
 
-    public void writeLog(String log) {
-        LocalDateTime time = LocalDateTime.now();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(LOG_FILE, true))) {
-            writer.write(time + " | " + log);
-            writer.newLine();
-            writer.close();
-        } catch (IOException e) {
-            System.err.println("An error occurred while writing logs: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Opens a cursor over all members of the library in a given order.
+     * <p>
+     * The members are sorted once when the cursor is opened, and members removed after that are left out of the pages.
+     *
+     * @param order The order to page through the members in.
+     * @return A cursor over all members.
+     */
+    public PageCursor<Member> openMembers(MemberOrder order) {
+        List<Member> snapshot = new ArrayList<>(memberRoll.values());
+        switch (order) {
+            case NAME:
+                snapshot.sort(Comparator.comparing(Member::getName, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Member::getId));
+                break;
+            case FINES:
+                snapshot.sort(Comparator.comparingInt(Member::getFines).reversed().thenComparingInt(Member::getId));
+                break;
+            default:
+                break; // The roll is already in the order the members joined in
         }
+        return new PageCursor<>(snapshot, member -> memberRoll.get(member.getId()) == member);
+    }
+
+    /**
+     * Opens a cursor over all books in the library in a given order.
+     * <p>
+     * The books are sorted once when the cursor is opened, and books removed after that are left out of the pages. ISBNs are compared
+     * by their packed form, so a shorter ISBN sorts before a longer one.
+     *
+     * @param order The order to page through the books in.
+     * @return A cursor over all books.
+     */
+    public PageCursor<Book> openBooks(BookOrder order) {
+        List<Book> snapshot = new ArrayList<>(catalogue.values());
+        switch (order) {
+            case TITLE:
+                snapshot.sort(Comparator.comparing(Book::getTitle, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Book::getId));
+                break;
+            case AUTHOR:
+                snapshot.sort(Comparator.comparing(Book::getAuthor, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Book::getId));
+                break;
+            case ISBN:
+                snapshot.sort(Comparator.comparingLong(Book::getPackedIsbn));
+                break;
+            default:
+                break; // The catalogue is already in the order the books were added in
+        }
+        return new PageCursor<>(snapshot, book -> catalogue.get(book.getId()) == book);
+    }
+
+    /**
+     * Writes an event to the audit log.
+     * <p>
+     * The event is written asynchronously by the audit log writer thread, so the caller does not wait for file I/O.
+     * 
+     * @param event The event to log.
+     */
+    public void writeLog(AuditEvent event) {
+        auditLog.log(event);
+    }
+
+    /**
+     * Writes a batch of events to the audit log, such as the fines applied by a sweep.
+     * 
+     * @param events The events to log, in the order they happened.
+     */
+    public void writeLogs(List<AuditEvent> events) {
+        auditLog.logAll(events);
+    }
+
+    /**
+     * Finds the audit log events in a time range, optionally only those involving one member.
+     * 
+     * @param from       The start of the range, inclusive.
+     * @param to         The end of the range, exclusive.
+     * @param memberName The name of the member to filter by, ignoring case, or null for all events.
+     * @return The matching events, oldest first.
+     * @throws IOException If the audit log could not be read.
+     */
+    public List<AuditEvent> queryLog(LocalDateTime from, LocalDateTime to, String memberName) throws IOException {
+        return auditLog.query(from, to, memberName);
     }
 }
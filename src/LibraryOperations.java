@@ -1,7 +1,13 @@
-import java.time.format.DateTimeFormatter;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * Facilitates user interactions with the library by providing comprehensive prompts for operations and returning information in an understandable format.
@@ -12,6 +18,11 @@ public class LibraryOperations {
     private Library library = new Library(); // Library object
     private Scanner scanner = new Scanner(System.in); // Scanner object for user input
 
+    private ResultRenderer renderer = new ResultRenderer(System.out); // Renderer buffering the lines of each page of results
+
+    private static final int SEARCH_RESULTS = 10; // Number of best matches listed by a ranked search
+    private static final int PAGE_SIZE = 20; // Number of records shown per page of a listing
+
     /**
      * Loads data from files into the library.
      */
@@ -26,6 +37,43 @@ public class LibraryOperations {
         library.saveData();
     }
 
+    /**
+     * Serves the library to desks and kiosks over TCP on the loopback interface until enter is pressed or input ends.
+     * 
+     * @param port The port to listen on.
+     */
+    public void serve(int port) {
+        LibraryServer server = new LibraryServer(library);
+        try {
+            server.start(port);
+        } catch (IOException e) {
+            System.err.println("An error occurred while starting the server: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        String threads = server.usesVirtualThreads() ? "virtual threads" : "pooled platform threads";
+        System.out.println("Library server listening on localhost:" + server.getPort() + " using " + threads + ". Press enter to stop.");
+        if (scanner.hasNextLine()) {
+            scanner.nextLine();
+        } else {
+            // Input is closed when running detached, so serve until the process is stopped
+            try {
+                Thread.currentThread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        server.close();
+        System.out.println("Library server stopped.");
+    }
+
+    /**
+     * Stops the library's background jobs and flushes its pending notifications, journal and audit log.
+     */
+    public void shutdown() {
+        library.shutdown();
+    }
+
     /**
      * Prompts the user to input details of a new book and adds it to the library.
      */
@@ -55,19 +103,48 @@ public class LibraryOperations {
         library.removeBook(bookIsbn);
     }
 
+    /**
+     * Prompts the user to input the path of a CSV file and imports its books into the library.
+     */
+    public void importBooks() {
+        System.out.print("Enter CSV file path: ");
+        importBooks(scanner.nextLine());
+    }
+
+    /**
+     * Imports the books in a CSV file with title, author and ISBN columns and prints the records that were rejected followed by a summary.
+     * 
+     * @param file The file path of the CSV file.
+     */
+    public void importBooks(String file) {
+        CatalogueImport catalogueImport = new CatalogueImport(library);
+        try {
+            catalogueImport.importFile(file);
+        } catch (IOException e) {
+            System.err.println("An error occurred while importing books: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        for (String error : catalogueImport.listErrors()) {
+            System.out.println(error);
+        }
+        String summary = "Imported " + catalogueImport.getImported() + " books from " + file + ", " + catalogueImport.listErrors().size() + " records rejected.";
+        System.out.println(summary);
+        library.writeLog(new AuditEvent(AuditEvent.Type.IMPORT, null, null, catalogueImport.getImported(), summary));
+    }
+
     /**
      * Lists all the books in the library.
      */
     public void listAllBooks() {
-        // Retrieve a list of all books in the library
-        List<Book> books = library.listAllBooks();
-        if (books.isEmpty()) {
+        // Prompt user to choose the order of the books and open a cursor over them
+        PageCursor<Book> books = library.openBooks(promptBookOrder());
+        System.out.println();
+        if (books.size() == 0) {
             System.out.println("No Books.");
         } else {
-            // Print details of each book
-            for (Book book : books) {
-                printBooks(book);
-            }
+            // Show details of each book a page at a time
+            showPages(books, this::renderBook);
         }
     }
 
@@ -113,9 +190,7 @@ public class LibraryOperations {
         } else {
             // Print details of found members
             System.out.println("\nMembers Found:\n");
-            for (Member member : members) {
-                printMembers(member);
-            }
+            showPages(PageCursor.of(members), renderer::member);
         }
     }
 
@@ -123,15 +198,14 @@ public class LibraryOperations {
      * Lists all members of the library.
      */
     public void listAllMembers() {
-        // Retrieve a list of all members in the library
-        List<Member> members = library.listAllMembers();
-        if (members.isEmpty()) {
+        // Prompt user to choose the order of the members and open a cursor over them
+        PageCursor<Member> members = library.openMembers(promptMemberOrder());
+        System.out.println();
+        if (members.size() == 0) {
             System.out.println("No Members.");
         } else {
-            // Print details of each member
-            for (Member member : members) {
-                printMembers(member);
-            }
+            // Show details of each member a page at a time
+            showPages(members, renderer::member);
         }
     }
 
@@ -150,9 +224,7 @@ public class LibraryOperations {
         } else {
             // Print details of found books
             System.out.println("\nBooks Found:\n");
-            for (Book book : searchResults) {
-                printBooks(book);
-            }
+            showPages(PageCursor.of(searchResults), this::renderBook);
         }
     }
 
@@ -171,9 +243,26 @@ public class LibraryOperations {
         } else {
             // Print details of found books
             System.out.println("\nBooks found:\n");
-            for (Book book : searchResults) {
-                printBooks(book);
-            }
+            showPages(PageCursor.of(searchResults), this::renderBook);
+        }
+    }
+
+    /**
+     * Prompts the user to input words of a title or author and lists the best matching books, tolerating typos.
+     */
+    public void searchBooksRanked() {
+        // Prompt user to input the words to search for
+        System.out.print("Enter title or author words to search: ");
+        String searchWords = scanner.nextLine();
+
+        // Search for the best matching books in the library
+        List<Book> searchResults = library.searchBooksRanked(searchWords, SEARCH_RESULTS);
+        if (searchResults.isEmpty()) {
+            System.out.println("\nNo Books Found.");
+        } else {
+            // Print details of found books, most relevant first
+            System.out.println("\nBest Matches:\n");
+            showPages(PageCursor.of(searchResults), this::renderBook);
         }
     }
 
@@ -192,7 +281,8 @@ public class LibraryOperations {
         } else {
             // Print details of the found book
             System.out.println("\nBook found:\n");
-            printBooks(book);
+            renderBook(book);
+            renderer.flush();
         }
     }
 
@@ -220,27 +310,107 @@ public class LibraryOperations {
         System.out.print("Enter book ISBN to return: ");
         String returnIsbn = scanner.nextLine();
 
-        // Return the book to the library
-        library.returnBook(returnIsbn, returnMember);
+        // Return the book to the library and report a hold filled by the returned copy
+        Member holder = library.returnBook(returnIsbn, returnMember);
+        if (holder != null) {
+            System.out.println("Book with ISBN " + returnIsbn + " has been checked out to " + holder.getName() + " from the hold queue.");
+        }
+    }
+
+    /**
+     * Prompts the user to input the name of a member and the ISBN of a book with no copy available and places a hold on the book for the member.
+     */
+    public void placeHold() {
+        // Prompt user to input member name and book ISBN
+        System.out.print("Enter member name: ");
+        String holdMember = scanner.nextLine();
+        System.out.print("Enter book ISBN to place a hold on: ");
+        String holdIsbn = scanner.nextLine();
+
+        // Place the member in the hold queue of the book
+        library.placeHold(holdIsbn, holdMember);
+    }
+
+    /**
+     * Applies the checkouts and returns in a transaction file and prints the result of every line followed by a summary.
+     * <p>
+     * Blank lines are ignored, and lines that are not valid transactions are reported and skipped.
+     * 
+     * @param file The file path of the transaction file.
+     */
+    public void processTransactions(String file) {
+        List<Transaction> transactions = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>(); // Line number of each parsed transaction
+        int invalid = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    transactions.add(Transaction.parse(line));
+                    lineNumbers.add(lineNumber);
+                } catch (IllegalArgumentException e) {
+                    invalid++;
+                    System.out.println("Line " + lineNumber + ": Skipped | " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading transactions: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        // Apply the batch and report each line in file order
+        List<TransactionResult> results = library.processTransactions(transactions);
+        int succeeded = 0;
+        for (int i = 0; i < results.size(); i++) {
+            TransactionResult result = results.get(i);
+            Transaction transaction = result.getTransaction();
+            String type = transaction.getType() == Transaction.Type.CHECKOUT ? "Checkout" : "Return";
+            System.out.println("Line " + lineNumbers.get(i) + ": " + type + " | ISBN: " + transaction.getIsbn() + " | Member Name: " + transaction.getMemberName() + " | " + (result.isSuccessful() ? "OK" : "Failed") + " | " + result.getMessage());
+            if (result.isSuccessful()) {
+                succeeded++;
+            }
+        }
+        String summary = "Processed " + results.size() + " transactions from " + file + ": " + succeeded + " succeeded, " + (results.size() - succeeded) + " failed, " + invalid + " invalid lines skipped.";
+        System.out.println(summary);
+        library.writeLog(new AuditEvent(AuditEvent.Type.BATCH, null, null, succeeded, summary));
     }
 
     /**
      * Lists all checked out books.
      */
     public void listCheckOutBooks() {
-        // Retrieve a map of all borrowed books
-        Map<Book, Member> borrowedBooks = library.listBorrowedBooks();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-LLL-yyyy HH:mm");
-        boolean nothing = true; // Flag to track if there are no borrowed books
-        for (Map.Entry<Book, Member> entry : borrowedBooks.entrySet()) {
-            nothing = false;
-            Book book = entry.getKey();
-            Member member = entry.getValue();
-            // Print details of each borrowed book
-            System.out.println("Book: " + book.getTitle() + " | ISBN: " + book.getIsbn() + " | Member Name: " + member.getName() + " | Member Email: " + member.getEmail() + " | Member Fines: R" + member.getFines() + " | Due Date: " + formatter.format(book.getBookReturnDueDate()));
+        // Open a cursor over all borrowed copies, soonest due first
+        PageCursor<Map.Entry<BookCopy, Member>> borrowedBooks = library.openLoans();
+        if (borrowedBooks.size() == 0) {
+            System.out.println("No Borrowed Books.");
+        } else {
+            // Show details of each borrowed copy a page at a time
+            showPages(borrowedBooks, loan -> renderer.loan(loan.getKey(), loan.getValue()));
         }
-        if (nothing == true) {
+    }
+
+    /**
+     * Prompts the user to input the name of a member and lists the books the member has checked out.
+     */
+    public void listMemberLoans() {
+        // Prompt user to input the name of the member
+        System.out.print("Enter member name: ");
+        String memberName = scanner.nextLine();
+        System.out.println();
+
+        // Retrieve the copies borrowed by the member
+        List<BookCopy> loans = library.listLoans(memberName);
+        if (loans.isEmpty()) {
             System.out.println("No Borrowed Books.");
+        } else {
+            // Show details of each borrowed copy a page at a time
+            showPages(PageCursor.of(loans), renderer::loan);
         }
     }
 
@@ -260,9 +430,7 @@ public class LibraryOperations {
         } catch (NumberFormatException e) {
             throw new NumberFormatException("Invalid fine amount. Please enter a valid integer."); // Throw exception if the entered fine amount is not a valid integer
         }
-        Member member = library.checkMember(name);
-        member.decrementFines(fine); // Decrease member's fines by the specified amount
-        library.writeLog("Member: " + member.getName() + " payed R" + fine + " in fines.");
+        library.payFine(name, fine); // Decrease member's fines by the specified amount and log the payment
     }
 
     /**
@@ -270,42 +438,168 @@ public class LibraryOperations {
      * If there are no members with fines, it prints "No Fines.".
      */
     public void listAllFines() {
-        List<Member> members = library.listAllMembers();
-        boolean nothing = true; // Flag to track if there are no members with fines
-        for (Member member : members) {
-            if (member.getFines() > 0) {
-                nothing = false;
-                printMembers(member); // Print details of members with fines
-            }
-        }
-        if (nothing) {
+        List<Member> debtors = library.listDebtors();
+        if (debtors.isEmpty()) {
             System.out.println("No Fines."); // Print if there are no members with fines
+        } else {
+            showPages(PageCursor.of(debtors), renderer::member); // Show details of members with fines a page at a time
+        }
+    }
+
+    /**
+     * Prompts the user to input the name of a member and prints their fines statement from the ledger.
+     * The statement opens with the balance brought forward from before the ledger began and closes with the current balance.
+     */
+    public void printStatement() {
+        System.out.print("Enter member name: "); // Prompt for member name
+        String name = scanner.nextLine();
+        System.out.println();
+        List<LedgerEntry> entries = library.getStatement(name);
+        if (entries.isEmpty()) {
+            System.out.println("No Fines Recorded.");
+            return;
         }
+        LedgerEntry first = entries.get(0);
+        System.out.println("Balance Brought Forward: R" + (first.getBalance() - first.getChange()));
+        showPages(PageCursor.of(entries), renderer::ledgerEntry); // Show the entries a page at a time
+        System.out.println("Balance: R" + entries.get(entries.size() - 1).getBalance());
     }
 
     /**
-     * Prints details of a book, including its title, author, ISBN, and availability.
-     * If the book is not available, it also prints the due date and whether it is late.
+     * Prompts the user to input a date range and optionally a member name, and prints the audit log events that match.
      * 
-     * @param book The book object to print details of.
+     * @throws IllegalArgumentException if a date is not entered as yyyy-MM-dd or the range ends before it starts.
      */
-    private void printBooks(Book book) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-LLL-yyyy HH:mm");
-        if (book.isAvailable()) {
-            System.out.println("Title: " + book.getTitle() + " | Author: " + book.getAuthor() + " | ISBN: " + book.getIsbn() + " | Available: Yes"); // Print book details when available
+    public void queryLog() {
+        System.out.print("Enter start date (yyyy-MM-dd): "); // Prompt for the first day of the range
+        String fromString = scanner.nextLine();
+        System.out.print("Enter end date (yyyy-MM-dd): "); // Prompt for the last day of the range
+        String toString = scanner.nextLine();
+        System.out.print("Enter member name (leave blank for all members): "); // Prompt for an optional member filter
+        String name = scanner.nextLine().trim();
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(fromString.trim());
+            to = LocalDate.parse(toString.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date. Please enter dates as yyyy-MM-dd."); // Throw exception if a date is not valid
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end date is before the start date.");
+        }
+        System.out.println();
+        List<AuditEvent> events;
+        try {
+            events = library.queryLog(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), name.isEmpty() ? null : name);
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading logs: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        if (events.isEmpty()) {
+            System.out.println("No Events Found.");
         } else {
-            String late = book.getOverDueState() > 0 ? "Yes" : "No"; // Determine if the book is late
-            System.out.println("Title: " + book.getTitle() + " | Author: " + book.getAuthor() + " | ISBN: " + book.getIsbn() + " | Available: No | Due Date: " + formatter.format(book.getBookReturnDueDate()) + " | Late : " + late); // Print book details including due date and late status
+            // Show the time and type of each event followed by the member and book involved, if any, a page at a time
+            showPages(PageCursor.of(events), renderer::auditEvent);
+        }
+    }
+
+    /**
+     * Prints the library's circulation, search and persistence latencies, its counters and gauges, and the statistics of its background jobs.
+     */
+    public void printStatistics() {
+        for (String line : library.reportMetrics()) {
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Prompts the user to choose the order to list books in.
+     * 
+     * @return The chosen order, the order the books were added in if the user just presses enter.
+     * @throws IllegalArgumentException If the choice is not one of the listed orders.
+     */
+    private Library.BookOrder promptBookOrder() {
+        System.out.print("Sort by 1. Date Added, 2. Title, 3. Author or 4. ISBN (press enter for date added): ");
+        switch (scanner.nextLine().trim()) {
+            case "":
+            case "1":
+                return Library.BookOrder.ADDED;
+            case "2":
+                return Library.BookOrder.TITLE;
+            case "3":
+                return Library.BookOrder.AUTHOR;
+            case "4":
+                return Library.BookOrder.ISBN;
+            default:
+                throw new IllegalArgumentException("Invalid sort order.");
+        }
+    }
+
+    /**
+     * Prompts the user to choose the order to list members in.
+     * 
+     * @return The chosen order, the order the members joined in if the user just presses enter.
+     * @throws IllegalArgumentException If the choice is not one of the listed orders.
+     */
+    private Library.MemberOrder promptMemberOrder() {
+        System.out.print("Sort by 1. Date Joined, 2. Name or 3. Fines (press enter for date joined): ");
+        switch (scanner.nextLine().trim()) {
+            case "":
+            case "1":
+                return Library.MemberOrder.ADDED;
+            case "2":
+                return Library.MemberOrder.NAME;
+            case "3":
+                return Library.MemberOrder.FINES;
+            default:
+                throw new IllegalArgumentException("Invalid sort order.");
+        }
+    }
+
+    /**
+     * Shows the records of a cursor a page at a time, rendering each page only when the user turns to it.
+     * After each page but the last, the user presses enter for the next page, p for the previous page, or q to stop.
+     * 
+     * @param <T>    The type of record paged through.
+     * @param cursor The cursor over the records.
+     * @param render The action rendering a record.
+     */
+    private <T> void showPages(PageCursor<T> cursor, Consumer<T> render) {
+        int pages = cursor.pageCount(PAGE_SIZE);
+        int page = 0;
+        while (true) {
+            for (T record : cursor.page(page * PAGE_SIZE, PAGE_SIZE)) {
+                render.accept(record);
+            }
+            if (pages > 1) {
+                renderer.line("\nPage " + (page + 1) + " of " + pages + " | " + cursor.size() + " results");
+            }
+            renderer.flush(); // Write the whole page at once
+            if (page + 1 >= pages) {
+                return; // Last page shown
+            }
+            System.out.print("Press enter for the next page, p for the previous page or q to stop: ");
+            if (!scanner.hasNextLine()) {
+                return; // No more input
+            }
+            String choice = scanner.nextLine().trim();
+            if (choice.equalsIgnoreCase("q")) {
+                return;
+            }
+            page = choice.equalsIgnoreCase("p") ? Math.max(page - 1, 0) : page + 1;
+            System.out.println();
         }
     }
 
     /**
-     * Prints details of a member, including their name, email, and fines.
+     * Renders details of a book with the number of holds waiting for it.
      * 
-     * @param member The member object to print details of.
+     * @param book The book to render details of.
      */
-    private void printMembers(Member member) {
-        System.out.println("Name: " + member.getName() + " | Email: " + member.getEmail() + " | Fines: R" + member.getFines()); // Print member details
+    private void renderBook(Book book) {
+        renderer.book(book, library.listHolds(book.getIsbn()).size());
     }
 
 }
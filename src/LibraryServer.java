@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves circulation, search and fine requests for a shared library over TCP on the loopback interface.
+ * <p>
+ * Every connection is handled on its own thread: a virtual thread when the runtime offers them, otherwise a pooled platform thread.
+ * Requests are single lines with fields separated by ", ", in the style of transaction files:
+ * <ul>
+ * <li>{@code checkout, isbn, member name[, due days]} and {@code return, isbn, member name} answer {@code OK}.</li>
+ * <li>{@code title, text}, {@code author, text} and {@code isbn, isbn} answer {@code OK n} followed by n lines of
+ * {@code title | author | isbn | available copies | copies}.</li>
+ * <li>{@code fines, member name} and {@code pay, member name, amount} answer {@code OK balance}.</li>
+ * <li>{@code quit} closes the connection.</li>
+ * </ul>
+ * A request that fails answers {@code ERROR} followed by the reason.
+ */
+public class LibraryServer implements Runnable {
+    public static final int DEFAULT_PORT = 7070; // Port served when none is specified
+
+    private Library library; // The library shared by all connections
+    private ServerSocket serverSocket; // Socket accepting connections
+    private ExecutorService connections; // Executor running one task per connection
+    private boolean virtualThreads; // Whether connections are handled on virtual threads
+    private Thread acceptor = new Thread(this, "library-server-acceptor"); // Thread accepting connections
+    private Set<Socket> clients = ConcurrentHashMap.newKeySet(); // Open client connections
+    private volatile boolean running = false; // Whether the server is accepting connections
+
+    /**
+     * Constructs a LibraryServer for a library.
+     *
+     * @param library The library the requests are applied to.
+     */
+    public LibraryServer(Library library) {
+        this.library = library;
+    }
+
+    /**
+     * Binds the server to a port on the loopback interface and starts accepting connections.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port could not be bound.
+     */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        connections = newConnectionExecutor();
+        running = true;
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The bound port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Checks whether connections are handled on virtual threads.
+     *
+     * @return true if the runtime offers virtual threads, false if connections use pooled platform threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting connections, closes the open connections and waits for the acceptor to finish.
+     */
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("An error occurred while closing the server: " + e.getMessage());
+        }
+        for (Socket client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // The connection is being dropped anyway
+            }
+        }
+        connections.shutdown();
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed, handing each to a connection thread.
+     */
+    public void run() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                clients.add(client);
+                connections.execute(() -> serve(client));
+            } catch (SocketException e) {
+                if (running) {
+                    System.err.println("An error occurred while accepting a connection: " + e.getMessage());
+                }
+            } catch (IOException e) {
+                System.err.println("An error occurred while accepting a connection: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the client quits or disconnects.
+     *
+     * @param client The connected client.
+     */
+    private void serve(Socket client) {
+        try (Socket socket = client;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().equalsIgnoreCase("quit")) {
+                    break;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    out.write(handle(line));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    out.write("ERROR " + e.getMessage() + "\n");
+                } catch (RuntimeException e) {
+                    out.write("ERROR " + e + "\n");
+                    e.printStackTrace();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client disconnected or the server is closing
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    /**
+     * Applies one request to the library.
+     *
+     * @param line The request line.
+     * @return The response, ending in a line separator.
+     * @throws IllegalArgumentException If the request is malformed or names an unknown member.
+     * @throws IllegalStateException    If the library rejects the request.
+     */
+    private String handle(String line) {
+        String[] parts = line.split(", ");
+        String command = parts[0].trim().toLowerCase();
+        switch (command) {
+            case "checkout":
+            case "return":
+                Transaction transaction = Transaction.parse(line);
+                if (transaction.getType() == Transaction.Type.CHECKOUT) {
+                    library.checkoutBook(transaction.getIsbn(), transaction.getMemberName(), transaction.getDueDays());
+                } else {
+                    library.returnBook(transaction.getIsbn(), transaction.getMemberName());
+                }
+                return "OK\n";
+            case "title":
+                return formatBooks(library.searchBooksByTitle(argument(parts, 1)));
+            case "author":
+                return formatBooks(library.searchBooksByAuthor(argument(parts, 1)));
+            case "isbn":
+                Book book = library.searchBooksByIsbn(argument(parts, 1));
+                return formatBooks(book == null ? List.of() : List.of(book));
+            case "fines":
+                return "OK " + library.checkMember(argument(parts, 1)).getFines() + "\n";
+            case "pay":
+                int amount;
+                try {
+                    amount = Integer.parseInt(argument(parts, 2));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid fine amount.");
+                }
+                Member member = library.payFine(argument(parts, 1), amount);
+                return "OK " + member.getFines() + "\n";
+            default:
+                throw new IllegalArgumentException("Unknown request " + parts[0].trim() + ".");
+        }
+    }
+
+    /**
+     * Gets a required field of a request.
+     *
+     * @param parts The fields of the request.
+     * @param index The index of the field.
+     * @return The trimmed field.
+     * @throws IllegalArgumentException If the request has no such field.
+     */
+    private static String argument(String[] parts, int index) {
+        if (parts.length <= index || parts[index].isBlank()) {
+            throw new IllegalArgumentException("Missing field " + index + " for " + parts[0].trim() + ".");
+        }
+        return parts[index].trim();
+    }
+
+    /**
+     * Formats a search result as a count line followed by one line per book.
+     *
+     * @param books The books found.
+     * @return The response.
+     */
+    private static String formatBooks(List<Book> books) {
+        StringBuilder response = new StringBuilder("OK ").append(books.size()).append('\n');
+        for (Book book : books) {
+            response.append(book.getTitle()).append(" | ").append(book.getAuthor()).append(" | ").append(book.getIsbn()).append(" | ")
+                    .append(book.getAvailableCopies()).append(" | ").append(book.getCopyCount()).append('\n');
+        }
+        return response.toString();
+    }
+
+    /**
+     * Creates the executor for connections, using a virtual thread per connection when the runtime offers them.
+     * <p>
+     * Virtual threads are looked up reflectively, so the server still builds and runs on runtimes without them.
+     *
+     * @return The executor for connections.
+     */
+    private ExecutorService newConnectionExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "library-server-connection-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,414 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a compact, versioned binary snapshot of the books, members, holds and fines ledger of the library.
+ * <p>
+ * Strings are stored as length-prefixed UTF-8 and due dates as epoch seconds, so a snapshot loads without any text parsing.
+ * Members are written before books and keep their ids, so borrowed copies refer to their borrower by id.
+ */
+public class LibrarySnapshot {
+    private static final int MAGIC = 0x4C4D5331; // "LMS1" file signature
+    private static final int VERSION = 6; // Current snapshot format version
+    private static final int NULL_STRING = -1; // Length written for a null string
+    private static final long NO_DUE_DATE = Long.MIN_VALUE; // Epoch seconds written for a missing due date
+    private static final int AVAILABLE_FLAG = 1; // Flag bit marking an available copy
+
+    private long generation; // Journal generation the snapshot was compacted into
+    private List<Book> books; // Books read from the snapshot
+    private List<Member> members; // Members read from the snapshot
+    private Map<String, List<String>> holds; // Member names in each hold queue read from the snapshot, keyed by ISBN
+    private List<LedgerEntry> ledger; // Fines ledger entries read from the snapshot
+
+    /**
+     * Constructs a LibrarySnapshot holding the books, members, holds and fines ledger read from a snapshot file.
+     * 
+     * @param generation The journal generation of the snapshot.
+     * @param books      The books read from the snapshot.
+     * @param members    The members read from the snapshot.
+     * @param holds      The member names in each hold queue read from the snapshot, keyed by ISBN.
+     * @param ledger     The fines ledger entries read from the snapshot.
+     */
+    private LibrarySnapshot(long generation, List<Book> books, List<Member> members, Map<String, List<String>> holds, List<LedgerEntry> ledger) {
+        this.generation = generation;
+        this.books = books;
+        this.members = members;
+        this.holds = holds;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Gets the journal generation of the snapshot.
+     * <p>
+     * Only a journal of the same generation holds changes made after the snapshot was written.
+     * 
+     * @return The journal generation, zero for snapshots written before journaling.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the books read from the snapshot.
+     * 
+     * @return The books in the order they were written.
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Gets the members read from the snapshot.
+     * 
+     * @return The members in the order they were written.
+     */
+    public List<Member> getMembers() {
+        return members;
+    }
+
+    /**
+     * Gets the hold queues read from the snapshot.
+     * 
+     * @return The member names in each hold queue in queue order, keyed by ISBN, empty for snapshots written before holds.
+     */
+    public Map<String, List<String>> getHolds() {
+        return holds;
+    }
+
+    /**
+     * Gets the fines ledger entries read from the snapshot.
+     * 
+     * @return The entries in the order they were written, empty for snapshots written before the ledger.
+     */
+    public List<LedgerEntry> getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Writes a snapshot of the specified books, members, holds and fines ledger.
+     * <p>
+     * The snapshot is written to a temporary file first and then moved over the target, so a failed write never leaves a partial snapshot behind.
+     * 
+     * @param file       The path of the snapshot file.
+     * @param generation The journal generation of the snapshot.
+     * @param books      The books to write.
+     * @param members    The members to write.
+     * @param holds      The member names in each hold queue in queue order, keyed by ISBN.
+     * @param ledger     The fines ledger entries to write.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public static void write(String file, long generation, Collection<Book> books, Collection<Member> members, Map<String, List<String>> holds,
+            Collection<LedgerEntry> ledger) throws IOException {
+        Path target = Paths.get(file);
+        Path temp = Paths.get(file + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeInt(members.size());
+            for (Member member : members) {
+                writeString(out, member.getName());
+                writeString(out, member.getEmail());
+                out.writeInt(member.getFines());
+                out.writeInt(member.getId());
+            }
+            out.writeInt(books.size());
+            for (Book book : books) {
+                writeString(out, book.getTitle());
+                writeString(out, book.getAuthor());
+                writeString(out, book.getIsbn());
+                out.writeInt(book.getCopyCount());
+                int slots = book.getCopySlots();
+                for (int copy = 0; copy < slots; copy++) {
+                    if (book.isWithdrawn(copy)) {
+                        continue;
+                    }
+                    out.writeByte(book.isAvailable(copy) ? AVAILABLE_FLAG : 0);
+                    LocalDateTime dueDate = book.getBookReturnDueDate(copy);
+                    out.writeLong(dueDate == null ? NO_DUE_DATE : dueDate.toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(book.getOverDueState(copy));
+                    out.writeInt(book.getNotificationState(copy));
+                    out.writeInt(book.getMemberId(copy));
+                }
+            }
+            out.writeInt(holds.size());
+            for (Map.Entry<String, List<String>> queue : holds.entrySet()) {
+                writeString(out, queue.getKey());
+                out.writeInt(queue.getValue().size());
+                for (String memberName : queue.getValue()) {
+                    writeString(out, memberName);
+                }
+            }
+            out.writeInt(ledger.size());
+            for (LedgerEntry entry : ledger) {
+                out.writeByte(entry.getType().ordinal());
+                out.writeLong(entry.getTime().toEpochSecond(ZoneOffset.UTC));
+                writeString(out, entry.getMemberName());
+                writeString(out, entry.getIsbn());
+                out.writeInt(entry.getAmount());
+                out.writeInt(entry.getBalance());
+            }
+            out.flush();
+            stream.getChannel().force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot by memory-mapping the snapshot file.
+     * <p>
+     * The books are attached to the library's loan table with ids in the order they were written, and their borrowed copies are
+     * recorded in it, only once the whole snapshot has been read. A truncated or corrupt snapshot leaves the loan table untouched, so
+     * the library can import the text files instead.
+     * 
+     * @param file  The path of the snapshot file.
+     * @param loans The loan table of the library the snapshot is loaded into.
+     * @return The books and members stored in the snapshot.
+     * @throws IOException If the snapshot could not be read or is not a supported snapshot.
+     */
+    public static LibrarySnapshot read(String file, LoanTable loans) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + size + " bytes.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a library snapshot.");
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ".");
+            }
+            long generation = version >= 2 ? buffer.getLong() : 0;
+            byte[] scratch = new byte[256];
+            List<Book> books;
+            List<Member> members;
+            List<PendingLoan> pending = new ArrayList<>();
+            if (version >= 6) {
+                members = readMembers(buffer, version, scratch);
+                books = readBooks(buffer, version, scratch, null, pending);
+            } else {
+                // Older snapshots write books first and refer to borrowers by email, so skip to the members and come back
+                int booksStart = buffer.position();
+                readBooks(buffer, version, scratch, new HashMap<>(), null);
+                members = readMembers(buffer, version, scratch);
+                int membersEnd = buffer.position();
+                Map<String, Integer> idsByEmail = new HashMap<>();
+                for (Member member : members) {
+                    idsByEmail.putIfAbsent(Library.memberKey(member.getEmail()), member.getId());
+                }
+                buffer.position(booksStart);
+                books = readBooks(buffer, version, scratch, idsByEmail, pending);
+                buffer.position(membersEnd);
+            }
+            Map<String, List<String>> holds = new LinkedHashMap<>();
+            if (version >= 4) {
+                int queueCount = buffer.getInt();
+                for (int i = 0; i < queueCount; i++) {
+                    String isbn = readString(buffer, scratch);
+                    int holdCount = buffer.getInt();
+                    List<String> names = new ArrayList<>(Math.min(holdCount, buffer.remaining()));
+                    for (int j = 0; j < holdCount; j++) {
+                        names.add(readString(buffer, scratch));
+                    }
+                    holds.put(isbn, names);
+                }
+            }
+            List<LedgerEntry> ledger = new ArrayList<>();
+            if (version >= 5) {
+                LedgerEntry.Type[] types = LedgerEntry.Type.values();
+                int entryCount = buffer.getInt();
+                for (int i = 0; i < entryCount; i++) {
+                    int type = buffer.get();
+                    if (type < 0 || type >= types.length) {
+                        throw new IOException("Unknown ledger entry type " + type + ".");
+                    }
+                    LocalDateTime time = LocalDateTime.ofEpochSecond(buffer.getLong(), 0, ZoneOffset.UTC);
+                    String memberName = readString(buffer, scratch);
+                    String isbn = readString(buffer, scratch);
+                    int amount = buffer.getInt();
+                    int balance = buffer.getInt();
+                    ledger.add(new LedgerEntry(types[type], time, memberName, isbn, amount, balance));
+                }
+            }
+            // The whole snapshot has been read, so the books and their loans can now be added to the loan table
+            for (int i = 0; i < books.size(); i++) {
+                books.get(i).attach(i + 1, loans);
+            }
+            for (PendingLoan loan : pending) {
+                loan.book.restoreLoan(loan.copy, loan.memberId, loan.dueDate, loan.overDueState, loan.notificationState);
+            }
+            return new LibrarySnapshot(generation, books, members, holds, ledger);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot is truncated.", e);
+        }
+    }
+
+    /**
+     * Reads the books section of a snapshot.
+     * 
+     * @param buffer     The buffer positioned at the start of the books section.
+     * @param version    The snapshot format version.
+     * @param scratch    A reusable buffer for encoded strings.
+     * @param idsByEmail The member ids keyed by case-folded email for snapshots that refer to borrowers by email, null for snapshots that
+     *                   store member ids.
+     * @param pending    The list the borrowed copies are added to, to be restored once the whole snapshot has been read, or null to only
+     *                   skip past the section.
+     * @return The books in the order they were written, not yet attached to a loan table.
+     * @throws IOException If a book has no copies or an invalid ISBN.
+     */
+    private static List<Book> readBooks(MappedByteBuffer buffer, int version, byte[] scratch, Map<String, Integer> idsByEmail,
+            List<PendingLoan> pending) throws IOException {
+        int bookCount = buffer.getInt();
+        List<Book> books = new ArrayList<>(Math.min(bookCount, buffer.remaining()));
+        for (int i = 0; i < bookCount; i++) {
+            String title = readString(buffer, scratch);
+            String author = readString(buffer, scratch);
+            String isbn = readString(buffer, scratch);
+            // Snapshots before version 3 hold a single copy of every book
+            int copies = version >= 3 ? buffer.getInt() : 1;
+            if (copies < 1) {
+                throw new IOException("Book with ISBN " + isbn + " has no copies.");
+            }
+            Book book;
+            try {
+                book = new Book(title, author, isbn);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            for (int copy = 0; copy < copies; copy++) {
+                boolean isAvailable = (buffer.get() & AVAILABLE_FLAG) != 0;
+                long dueEpoch = buffer.getLong();
+                LocalDateTime dueDate = dueEpoch == NO_DUE_DATE ? null : LocalDateTime.ofEpochSecond(dueEpoch, 0, ZoneOffset.UTC);
+                int overDueState = buffer.getInt();
+                int notificationState = buffer.getInt();
+                int memberId;
+                if (idsByEmail == null) {
+                    memberId = buffer.getInt();
+                } else {
+                    String memberEmail = readString(buffer, scratch);
+                    memberId = memberEmail == null ? 0 : idsByEmail.getOrDefault(Library.memberKey(memberEmail), 0);
+                }
+                int index = copy == 0 ? 0 : book.addCopy();
+                if (!isAvailable && pending != null) {
+                    pending.add(new PendingLoan(book, index, memberId, dueDate, overDueState, notificationState));
+                }
+            }
+            books.add(book);
+        }
+        return books;
+    }
+
+    /**
+     * Reads the members section of a snapshot.
+     * <p>
+     * Members of snapshots written before members kept their ids are numbered in the order they were written.
+     * 
+     * @param buffer  The buffer positioned at the start of the members section.
+     * @param version The snapshot format version.
+     * @param scratch A reusable buffer for encoded strings.
+     * @return The members in the order they were written.
+     */
+    private static List<Member> readMembers(MappedByteBuffer buffer, int version, byte[] scratch) {
+        int memberCount = buffer.getInt();
+        List<Member> members = new ArrayList<>(Math.min(memberCount, buffer.remaining()));
+        for (int i = 0; i < memberCount; i++) {
+            String name = readString(buffer, scratch);
+            String email = readString(buffer, scratch);
+            int fines = buffer.getInt();
+            Member member = new Member(name, email, fines);
+            member.setId(version >= 6 ? buffer.getInt() : i + 1);
+            members.add(member);
+        }
+        return members;
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string, or a null marker.
+     * 
+     * @param out   The stream to write to.
+     * @param value The string to write, may be null.
+     * @throws IOException If the string could not be written.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * 
+     * @param buffer  The buffer to read from.
+     * @param scratch A reusable buffer for the encoded bytes.
+     * @return The decoded string, or null if a null marker was written.
+     */
+    private static String readString(MappedByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Holds the loan state of a borrowed copy read from a snapshot until the whole snapshot has been read.
+     */
+    private static class PendingLoan {
+        private Book book; // Book the copy belongs to
+        private int copy; // Index of the copy
+        private int memberId; // Id of the member who borrowed the copy, or 0 if the borrower is no longer known
+        private LocalDateTime dueDate; // Due date for returning the copy
+        private int overDueState; // Number of times the copy has been overdue
+        private int notificationState; // Number of overdue notifications sent for the copy
+
+        /**
+         * Constructs a PendingLoan of a borrowed copy.
+         *
+         * @param book              The book the copy belongs to.
+         * @param copy              The index of the copy.
+         * @param memberId          The id of the member who borrowed the copy, or 0 if the borrower is no longer known.
+         * @param dueDate           The due date for returning the copy.
+         * @param overDueState      The number of times the copy has been overdue.
+         * @param notificationState The number of overdue notifications sent for the copy.
+         */
+        private PendingLoan(Book book, int copy, int memberId, LocalDateTime dueDate, int overDueState, int notificationState) {
+            this.book = book;
+            this.copy = copy;
+            this.memberId = memberId;
+            this.dueDate = dueDate;
+            this.overDueState = overDueState;
+            this.notificationState = notificationState;
+        }
+    }
+}
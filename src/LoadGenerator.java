@@ -0,0 +1,225 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives a running library server with concurrent clients and reports throughput and latency.
+ * <p>
+ * Every client holds one connection and sends requests back to back until the run ends. Three in four requests are ISBN lookups
+ * and title searches. When member names are given, the rest are a checkout followed by a return of the same book, each client
+ * acting for one of the members in turn.
+ * <p>
+ * Usage: {@code java LoadGenerator [port] [clients] [seconds] [search term] [member names separated by commas]}
+ */
+public class LoadGenerator {
+    private String term; // Title search term, also used to discover ISBNs
+    private List<String> isbns; // ISBNs found by the discovery search
+    private String[] memberNames; // Members checking books out, empty for a read-only run
+
+    /**
+     * Constructs a LoadGenerator.
+     *
+     * @param term        The title search term.
+     * @param isbns       The ISBNs to look up and check out.
+     * @param memberNames The members checking books out, empty for a read-only run.
+     */
+    private LoadGenerator(String term, List<String> isbns, String[] memberNames) {
+        this.term = term;
+        this.isbns = isbns;
+        this.memberNames = memberNames;
+    }
+
+    /**
+     * Runs the load generator against a server on the loopback interface.
+     *
+     * @param args The port, number of clients, run length in seconds, search term and member names, all optional.
+     * @throws Exception If the server could not be reached or a client failed.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : LibraryServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String term = args.length > 3 ? args[3] : "the";
+        String[] memberNames = args.length > 4 ? args[4].split(",") : new String[0];
+
+        // Discover ISBNs to request through a title search
+        List<String> isbns = new ArrayList<>();
+        try (Socket socket = new Socket("localhost", port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            for (String line : request(in, out, "title, " + term)) {
+                isbns.add(line.split(" \\| ")[2]);
+            }
+        }
+        if (isbns.isEmpty()) {
+            System.out.println("No books match the search term " + term + ".");
+            return;
+        }
+        System.out.println("Running " + clients + " clients for " + seconds + " seconds over " + isbns.size() + " books.");
+
+        LoadGenerator generator = new LoadGenerator(term, isbns, memberNames);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Client[] workers = new Client[clients];
+        for (int i = 0; i < clients; i++) {
+            workers[i] = generator.new Client(port, i, deadline);
+            workers[i].start();
+        }
+        long[] latencies = new long[0];
+        int errors = 0;
+        for (Client worker : workers) {
+            worker.join();
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + worker.count);
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            errors += worker.errors;
+        }
+        Arrays.sort(latencies);
+        System.out.println("Requests: " + latencies.length + " | Rejected: " + errors + " | Requests/sec: " + (latencies.length / seconds));
+        System.out.println("Latency ms | p50: " + millis(percentile(latencies, 0.50)) + " | p90: " + millis(percentile(latencies, 0.90)) + " | p99: "
+                + millis(percentile(latencies, 0.99)) + " | max: " + millis(latencies.length == 0 ? 0 : latencies[latencies.length - 1]));
+    }
+
+    /**
+     * Sends a request and reads its response.
+     *
+     * @param in      The reader of the connection.
+     * @param out     The writer of the connection.
+     * @param request The request line.
+     * @return The lines following an OK response, or null for an ERROR response.
+     * @throws IOException If the connection failed.
+     */
+    private static List<String> request(BufferedReader in, BufferedWriter out, String request) throws IOException {
+        out.write(request);
+        out.write('\n');
+        out.flush();
+        String status = in.readLine();
+        if (status == null) {
+            throw new IOException("Server closed the connection.");
+        }
+        if (status.startsWith("ERROR")) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>();
+        if (status.length() > 3 && (request.startsWith("title") || request.startsWith("isbn"))) {
+            int count = Integer.parseInt(status.substring(3));
+            for (int i = 0; i < count; i++) {
+                lines.add(in.readLine());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Gets a percentile of sorted latencies.
+     *
+     * @param sorted   The latencies in ascending order.
+     * @param fraction The percentile as a fraction.
+     * @return The latency at the percentile in nanoseconds, zero if there are none.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in milliseconds to three decimals.
+     */
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Sends requests over one connection until the run ends, recording the latency of each.
+     */
+    private class Client extends Thread {
+        private int port; // Port of the server
+        private String memberName; // Member this client checks books out for, or null
+        private long deadline; // Time the run ends, from System.nanoTime
+        private long[] latencies = new long[1024]; // Latency of every request in nanoseconds
+        private int count = 0; // Number of requests sent
+        private int errors = 0; // Number of requests the server rejected
+        private Exception failure; // Failure that ended the client early, or null
+
+        /**
+         * Constructs a Client.
+         *
+         * @param port     The port of the server.
+         * @param index    The index of the client, choosing its member.
+         * @param deadline The time the run ends, from System.nanoTime.
+         */
+        Client(int port, int index, long deadline) {
+            super("load-client-" + index);
+            this.port = port;
+            this.memberName = memberNames.length == 0 ? null : memberNames[index % memberNames.length].trim();
+            this.deadline = deadline;
+        }
+
+        /**
+         * Sends requests until the deadline.
+         */
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setTcpNoDelay(true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                while (System.nanoTime() < deadline) {
+                    String isbn = isbns.get(random.nextInt(isbns.size()));
+                    int choice = random.nextInt(4);
+                    if (memberName != null && choice == 3) {
+                        if (timed(in, out, "checkout, " + isbn + ", " + memberName)) {
+                            timed(in, out, "return, " + isbn + ", " + memberName);
+                        }
+                    } else if (choice % 2 == 0) {
+                        timed(in, out, "isbn, " + isbn);
+                    } else {
+                        timed(in, out, "title, " + term);
+                    }
+                }
+                out.write("quit\n");
+                out.flush();
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Sends a request and records its latency.
+         *
+         * @param in      The reader of the connection.
+         * @param out     The writer of the connection.
+         * @param request The request line.
+         * @return true if the server accepted the request.
+         * @throws IOException If the connection failed.
+         */
+        private boolean timed(BufferedReader in, BufferedWriter out, String request) throws IOException {
+            long start = System.nanoTime();
+            List<String> response = request(in, out, request);
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+            if (response == null) {
+                errors++;
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,586 @@
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Holds the loan state of every borrowed copy in the library in open-addressing hash tables of primitive arrays.
+ * <p>
+ * A loan is keyed by its copy, the book id and copy index packed into a long, and holds the id of the borrower, the due date as epoch
+ * seconds, the overdue state and the notification state in parallel arrays. Lookups probe a few adjacent slots without allocating, and
+ * sweeps over all loans are plain array scans. Removal shifts later entries of a probe run back, so the table never fills with tombstones.
+ * <p>
+ * The table is striped into segments keyed on the book id, each a hash table with its own read-write lock, so changes to the loans of
+ * different books do not contend for a global lock. Within a segment, lookups and sweeps share the read lock and changes take the
+ * write lock.
+ */
+public class LoanTable {
+    public static final int NO_MEMBER = 0; // Member id returned for a copy that is not on loan
+    public static final long NO_DUE_DATE = Long.MIN_VALUE; // Due date returned for a copy that is not on loan
+    private static final long EMPTY = 0; // Key of an empty slot, never a copy key since book ids start at 1
+    private static final int SEGMENTS = 64; // Number of segments the table is striped into, a power of two
+    private static final int INITIAL_CAPACITY = 16; // Slots allocated for an empty segment, a power of two
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L; // Spreads sequential keys over a segment
+
+    private Segment[] segments = new Segment[SEGMENTS]; // Segments holding the loans, indexed by the low bits of the book id
+
+    /**
+     * Visits the loans in the table during a sweep.
+     */
+    public interface Visitor {
+        /**
+         * Visits one loan.
+         *
+         * @param key               The key of the borrowed copy.
+         * @param memberId          The id of the member who borrowed the copy.
+         * @param dueEpoch          The due date as epoch seconds.
+         * @param overDueState      The number of times the copy has been overdue.
+         * @param notificationState The number of overdue notifications sent for the copy.
+         */
+        void visit(long key, int memberId, long dueEpoch, int overDueState, int notificationState);
+    }
+
+    /**
+     * Constructs an empty LoanTable.
+     */
+    public LoanTable() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Packs a copy into a key.
+     *
+     * @param bookId The id of the book, at least 1.
+     * @param copy   The index of the copy.
+     * @return The key of the copy.
+     */
+    public static long key(int bookId, int copy) {
+        return (long) bookId << 32 | copy;
+    }
+
+    /**
+     * Gets the book id of a key.
+     *
+     * @param key The key of a copy.
+     * @return The id of the book.
+     */
+    public static int bookIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Gets the copy index of a key.
+     *
+     * @param key The key of a copy.
+     * @return The index of the copy.
+     */
+    public static int copyOf(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Records a loan, replacing any loan of the same copy.
+     *
+     * @param key               The key of the borrowed copy.
+     * @param memberId          The id of the member who borrowed the copy.
+     * @param dueEpoch          The due date as epoch seconds.
+     * @param overDueState      The number of times the copy has been overdue.
+     * @param notificationState The number of overdue notifications sent for the copy.
+     */
+    public void put(long key, int memberId, long dueEpoch, int overDueState, int notificationState) {
+        segmentOf(key).put(key, memberId, dueEpoch, overDueState, notificationState);
+    }
+
+    /**
+     * Removes the loan of a copy.
+     *
+     * @param key The key of the copy.
+     * @return The id of the member who borrowed the copy, or NO_MEMBER if the copy was not on loan.
+     */
+    public int remove(long key) {
+        return segmentOf(key).remove(key);
+    }
+
+    /**
+     * Gets the id of the member who borrowed a copy.
+     *
+     * @param key The key of the copy.
+     * @return The id of the member, or NO_MEMBER if the copy is not on loan.
+     */
+    public int getMemberId(long key) {
+        return segmentOf(key).getMemberId(key);
+    }
+
+    /**
+     * Gets the due date of a borrowed copy.
+     *
+     * @param key The key of the copy.
+     * @return The due date as epoch seconds, or NO_DUE_DATE if the copy is not on loan.
+     */
+    public long getDueEpoch(long key) {
+        return segmentOf(key).getDueEpoch(key);
+    }
+
+    /**
+     * Sets the due date of a borrowed copy.
+     *
+     * @param key      The key of the copy.
+     * @param dueEpoch The due date as epoch seconds.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public void setDueEpoch(long key, long dueEpoch) {
+        segmentOf(key).setDueEpoch(key, dueEpoch);
+    }
+
+    /**
+     * Gets the overdue state of a borrowed copy.
+     *
+     * @param key The key of the copy.
+     * @return The number of times the copy has been overdue, or 0 if it is not on loan.
+     */
+    public int getOverDueState(long key) {
+        return segmentOf(key).getOverDueState(key);
+    }
+
+    /**
+     * Increments the overdue state of a borrowed copy.
+     *
+     * @param key The key of the copy.
+     * @return The updated overdue state.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public int incrementOverDueState(long key) {
+        return segmentOf(key).incrementOverDueState(key);
+    }
+
+    /**
+     * Extends a borrowed copy that has come due, incrementing its overdue state and setting its new due date in one change.
+     *
+     * @param key      The key of the copy.
+     * @param dueEpoch The extended due date as epoch seconds.
+     * @return The updated overdue state.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public int extend(long key, long dueEpoch) {
+        return segmentOf(key).extend(key, dueEpoch);
+    }
+
+    /**
+     * Gets the notification state of a borrowed copy.
+     *
+     * @param key The key of the copy.
+     * @return The number of overdue notifications sent for the copy, or 0 if it is not on loan.
+     */
+    public int getNotificationState(long key) {
+        return segmentOf(key).getNotificationState(key);
+    }
+
+    /**
+     * Increments the notification state of a borrowed copy.
+     *
+     * @param key The key of the copy.
+     * @throws IllegalStateException If the copy is not on loan.
+     */
+    public void incrementNotificationState(long key) {
+        segmentOf(key).incrementNotificationState(key);
+    }
+
+    /**
+     * Gets the number of loans in the table.
+     * <p>
+     * The segments are counted one at a time, so loans changed during the count may or may not be included.
+     *
+     * @return The number of borrowed copies.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Counts the loans due before a point in time with a single scan of the due dates of each segment.
+     *
+     * @param epoch The point in time as epoch seconds.
+     * @return The number of loans whose due date is before the point in time.
+     */
+    public int countDueBefore(long epoch) {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.countDueBefore(epoch);
+        }
+        return count;
+    }
+
+    /**
+     * Visits every loan in the table, one segment at a time in slot order.
+     * <p>
+     * Changes to a segment wait until its sweep is complete, so the visitor must not change the table.
+     *
+     * @param visitor The visitor called for each loan.
+     */
+    public void forEach(Visitor visitor) {
+        for (Segment segment : segments) {
+            segment.forEach(visitor);
+        }
+    }
+
+    /**
+     * Gets the segment holding the loans of a copy's book.
+     *
+     * @param key The key of the copy.
+     * @return The segment of the key.
+     */
+    private Segment segmentOf(long key) {
+        return segments[bookIdOf(key) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Holds the loans of the books whose ids fall on one segment in an open-addressing hash table guarded by its own lock.
+     */
+    private static class Segment {
+        private ReadWriteLock lock = new ReentrantReadWriteLock(); // Guards the arrays below
+        private long[] keys = new long[INITIAL_CAPACITY]; // Copy key of each slot, EMPTY if unused
+        private int[] memberIds = new int[INITIAL_CAPACITY]; // Id of the member who borrowed the copy in each slot
+        private long[] dueEpochs = new long[INITIAL_CAPACITY]; // Due date of the copy in each slot as epoch seconds
+        private int[] overDueStates = new int[INITIAL_CAPACITY]; // Number of times the copy in each slot has been overdue
+        private int[] notificationStates = new int[INITIAL_CAPACITY]; // Number of overdue notifications sent for the copy in each slot
+        private int shift = 64 - Integer.numberOfTrailingZeros(INITIAL_CAPACITY); // Bits dropped from a hash to index the table
+        private int size = 0; // Number of loans in the segment
+
+        /**
+         * Records a loan, replacing any loan of the same copy.
+         *
+         * @param key               The key of the borrowed copy.
+         * @param memberId          The id of the member who borrowed the copy.
+         * @param dueEpoch          The due date as epoch seconds.
+         * @param overDueState      The number of times the copy has been overdue.
+         * @param notificationState The number of overdue notifications sent for the copy.
+         */
+        void put(long key, int memberId, long dueEpoch, int overDueState, int notificationState) {
+            lock.writeLock().lock();
+            try {
+                int slot = find(key);
+                if (slot < 0) {
+                    if ((size + 1) * 2 > keys.length) {
+                        resize(keys.length * 2);
+                    }
+                    slot = ~find(key);
+                    keys[slot] = key;
+                    size++;
+                }
+                memberIds[slot] = memberId;
+                dueEpochs[slot] = dueEpoch;
+                overDueStates[slot] = overDueState;
+                notificationStates[slot] = notificationState;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Removes the loan of a copy.
+         *
+         * @param key The key of the copy.
+         * @return The id of the member who borrowed the copy, or NO_MEMBER if the copy was not on loan.
+         */
+        int remove(long key) {
+            lock.writeLock().lock();
+            try {
+                int slot = find(key);
+                if (slot < 0) {
+                    return NO_MEMBER;
+                }
+                int memberId = memberIds[slot];
+                // Shift every later entry of the probe run that may move back into the gap, so lookups never stop early
+                int mask = keys.length - 1;
+                int gap = slot;
+                for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                    int home = slotOf(keys[next]);
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        move(next, gap);
+                        gap = next;
+                    }
+                }
+                keys[gap] = EMPTY;
+                size--;
+                return memberId;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Gets the id of the member who borrowed a copy.
+         *
+         * @param key The key of the copy.
+         * @return The id of the member, or NO_MEMBER if the copy is not on loan.
+         */
+        int getMemberId(long key) {
+            lock.readLock().lock();
+            try {
+                int slot = find(key);
+                return slot < 0 ? NO_MEMBER : memberIds[slot];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Gets the due date of a borrowed copy.
+         *
+         * @param key The key of the copy.
+         * @return The due date as epoch seconds, or NO_DUE_DATE if the copy is not on loan.
+         */
+        long getDueEpoch(long key) {
+            lock.readLock().lock();
+            try {
+                int slot = find(key);
+                return slot < 0 ? NO_DUE_DATE : dueEpochs[slot];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Sets the due date of a borrowed copy.
+         *
+         * @param key      The key of the copy.
+         * @param dueEpoch The due date as epoch seconds.
+         * @throws IllegalStateException If the copy is not on loan.
+         */
+        void setDueEpoch(long key, long dueEpoch) {
+            lock.writeLock().lock();
+            try {
+                dueEpochs[slotOfLoan(key)] = dueEpoch;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Gets the overdue state of a borrowed copy.
+         *
+         * @param key The key of the copy.
+         * @return The number of times the copy has been overdue, or 0 if it is not on loan.
+         */
+        int getOverDueState(long key) {
+            lock.readLock().lock();
+            try {
+                int slot = find(key);
+                return slot < 0 ? 0 : overDueStates[slot];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Increments the overdue state of a borrowed copy.
+         *
+         * @param key The key of the copy.
+         * @return The updated overdue state.
+         * @throws IllegalStateException If the copy is not on loan.
+         */
+        int incrementOverDueState(long key) {
+            lock.writeLock().lock();
+            try {
+                return ++overDueStates[slotOfLoan(key)];
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Extends a borrowed copy that has come due, incrementing its overdue state and setting its new due date in one change.
+         *
+         * @param key      The key of the copy.
+         * @param dueEpoch The extended due date as epoch seconds.
+         * @return The updated overdue state.
+         * @throws IllegalStateException If the copy is not on loan.
+         */
+        int extend(long key, long dueEpoch) {
+            lock.writeLock().lock();
+            try {
+                int slot = slotOfLoan(key);
+                dueEpochs[slot] = dueEpoch;
+                return ++overDueStates[slot];
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Gets the notification state of a borrowed copy.
+         *
+         * @param key The key of the copy.
+         * @return The number of overdue notifications sent for the copy, or 0 if it is not on loan.
+         */
+        int getNotificationState(long key) {
+            lock.readLock().lock();
+            try {
+                int slot = find(key);
+                return slot < 0 ? 0 : notificationStates[slot];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Increments the notification state of a borrowed copy.
+         *
+         * @param key The key of the copy.
+         * @throws IllegalStateException If the copy is not on loan.
+         */
+        void incrementNotificationState(long key) {
+            lock.writeLock().lock();
+            try {
+                notificationStates[slotOfLoan(key)]++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Gets the number of loans in the segment.
+         *
+         * @return The number of borrowed copies.
+         */
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Counts the loans due before a point in time with a single scan of the due dates.
+         *
+         * @param epoch The point in time as epoch seconds.
+         * @return The number of loans whose due date is before the point in time.
+         */
+        int countDueBefore(long epoch) {
+            lock.readLock().lock();
+            try {
+                int count = 0;
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] != EMPTY && dueEpochs[slot] < epoch) {
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Visits every loan in the segment in slot order.
+         * <p>
+         * Changes to the segment wait until the sweep is complete, so the visitor must not change the table.
+         *
+         * @param visitor The visitor called for each loan.
+         */
+        void forEach(Visitor visitor) {
+            lock.readLock().lock();
+            try {
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] != EMPTY) {
+                        visitor.visit(keys[slot], memberIds[slot], dueEpochs[slot], overDueStates[slot], notificationStates[slot]);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Finds the slot of a key. Must be called while holding the lock.
+         *
+         * @param key The key to find.
+         * @return The slot holding the key, or the bitwise complement of the empty slot where it would be inserted.
+         */
+        private int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slotOf(key);; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return ~slot;
+                }
+            }
+        }
+
+        /**
+         * Finds the slot of a borrowed copy. Must be called while holding the lock.
+         *
+         * @param key The key of the copy.
+         * @return The slot holding the loan.
+         * @throws IllegalStateException If the copy is not on loan.
+         */
+        private int slotOfLoan(long key) {
+            int slot = find(key);
+            if (slot < 0) {
+                throw new IllegalStateException("Copy is not borrowed.");
+            }
+            return slot;
+        }
+
+        /**
+         * Gets the slot a key hashes to.
+         *
+         * @param key The key.
+         * @return The first slot probed for the key.
+         */
+        private int slotOf(long key) {
+            return (int) ((key * HASH_MULTIPLIER) >>> shift);
+        }
+
+        /**
+         * Moves the loan in one slot to another. Must be called while holding the write lock.
+         *
+         * @param from The slot to move from.
+         * @param to   The slot to move to.
+         */
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            memberIds[to] = memberIds[from];
+            dueEpochs[to] = dueEpochs[from];
+            overDueStates[to] = overDueStates[from];
+            notificationStates[to] = notificationStates[from];
+        }
+
+        /**
+         * Rehashes every loan into arrays of a new capacity. Must be called while holding the write lock.
+         *
+         * @param capacity The new number of slots, a power of two.
+         */
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldMemberIds = memberIds;
+            long[] oldDueEpochs = dueEpochs;
+            int[] oldOverDueStates = overDueStates;
+            int[] oldNotificationStates = notificationStates;
+            keys = new long[capacity];
+            memberIds = new int[capacity];
+            dueEpochs = new long[capacity];
+            overDueStates = new int[capacity];
+            notificationStates = new int[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            for (int old = 0; old < oldKeys.length; old++) {
+                if (oldKeys[old] != EMPTY) {
+                    int slot = ~find(oldKeys[old]);
+                    keys[slot] = oldKeys[old];
+                    memberIds[slot] = oldMemberIds[old];
+                    dueEpochs[slot] = oldDueEpochs[old];
+                    overDueStates[slot] = oldOverDueStates[old];
+                    notificationStates[slot] = oldNotificationStates[old];
+                }
+            }
+        }
+    }
+}
@@ -9,8 +9,33 @@ public class Main {
 
     /**
      * Main method to run the Library Management System.
+     * <p>
+     * Runs headless when started with {@code --batch <file>}, applying the transactions in the file and exiting,
+     * or with {@code --import <file>}, importing the books in a CSV file and exiting,
+     * or with {@code --serve [port]}, serving requests over TCP until enter is pressed.
      */
     public static void main(String[] args) {
+        if (args.length >= 1 && args.length <= 2 && args[0].equals("--serve")) {
+            int port = args.length == 2 ? parsePort(args[1]) : LibraryServer.DEFAULT_PORT;
+            if (port < 0) {
+                System.err.println("Usage: java Main --serve [port], where the port is a number from 1 to 65535.");
+                System.exit(1);
+            }
+            theLibrary.loadData();
+            theLibrary.serve(port);
+            theLibrary.saveData();
+            exit();
+        }
+        if (args.length == 2 && (args[0].equals("--batch") || args[0].equals("--import"))) {
+            theLibrary.loadData();
+            if (args[0].equals("--batch")) {
+                theLibrary.processTransactions(args[1]);
+            } else {
+                theLibrary.importBooks(args[1]);
+            }
+            theLibrary.saveData();
+            exit();
+        }
         clearConsole();
         System.out.println();
         printDash(44);
@@ -19,7 +44,7 @@ public class Main {
         theLibrary.loadData();
         while (true) {
             try {
-                displayMenu("Library Management System", "1. Manage Books", "2. Manage Members", "3. Manage Fines", "4. Search For a Book", "5. Checkout a Book", "6. Return a Book", "7. List Checked Out Books", "8. Save And Exit");
+                displayMenu("Library Management System", "1. Manage Books", "2. Manage Members", "3. Manage Fines", "4. Search For a Book", "5. Checkout a Book", "6. Return a Book", "7. Place a Hold on a Book", "8. List Checked Out Books", "9. Search Audit Log", "10. Statistics", "11. Save And Exit");
                 String choice = scanner.nextLine();
                 clearConsole();
                 switch (choice) {
@@ -58,6 +83,17 @@ public class Main {
                         scanner.nextLine();
                         break;
                     case "7":
+                        System.out.println("\nPlace a Hold on a Book");
+                        printDash(22);
+                        theLibrary.placeHold();
+                        System.out.println();
+                        printDash(26);
+                        System.out.println("Hold Placed Successfully.");
+                        printDash(26);
+                        System.out.println("\nPress enter to return to main menu.");
+                        scanner.nextLine();
+                        break;
+                    case "8":
                         System.out.println("\nList Checked Out Books");
                         printDash(44);
                         System.out.println();
@@ -67,7 +103,25 @@ public class Main {
                         System.out.println("\nPress enter to return to main menu.");
                         scanner.nextLine();
                         break;
-                    case "8":
+                    case "9":
+                        System.out.println("\nSearch Audit Log");
+                        printDash(16);
+                        theLibrary.queryLog();
+                        System.out.println();
+                        printDash(44);
+                        System.out.println("\nPress enter to return to main menu.");
+                        scanner.nextLine();
+                        break;
+                    case "10":
+                        System.out.println("\nStatistics");
+                        printDash(10);
+                        theLibrary.printStatistics();
+                        System.out.println();
+                        printDash(44);
+                        System.out.println("\nPress enter to return to main menu.");
+                        scanner.nextLine();
+                        break;
+                    case "11":
                         theLibrary.saveData();
                         exit();
                     default:
@@ -101,7 +155,7 @@ public class Main {
      */
     private static void manageBooks() {
         while (true) {
-            displayMenu("Manage Books", "1. Add a Book", "2. Remove a Book", "3. List All Books", "4. Return To Main Menu");
+            displayMenu("Manage Books", "1. Add a Book", "2. Remove a Book", "3. List All Books", "4. Import Books From CSV", "5. Return To Main Menu");
             String choice = scanner.nextLine();
             clearConsole();
             switch (choice) {
@@ -138,6 +192,15 @@ public class Main {
                     scanner.nextLine();
                     break;
                 case "4":
+                    System.out.println("\nImport Books From CSV");
+                    printDash(21);
+                    theLibrary.importBooks();
+                    System.out.println();
+                    printDash(44);
+                    System.out.println("\nPress enter to return to main menu.");
+                    scanner.nextLine();
+                    break;
+                case "5":
                     break;
                 default:
                     System.out.println();
@@ -155,7 +218,7 @@ public class Main {
      */
     private static void manageMembers() {
         while (true) {
-            displayMenu("Manage Members", "1. Add a Member", "2. Remove a Member", "3. Search For a Member", "4. List All Members", "5. Return To Main Menu");
+            displayMenu("Manage Members", "1. Add a Member", "2. Remove a Member", "3. Search For a Member", "4. List All Members", "5. List Loans For a Member", "6. Return To Main Menu");
             String choice = scanner.nextLine();
             clearConsole();
             switch (choice) {
@@ -200,6 +263,15 @@ public class Main {
                     scanner.nextLine();
                     break;
                 case "5":
+                    System.out.println("\nList Loans For a Member");
+                    printDash(23);
+                    theLibrary.listMemberLoans();
+                    System.out.println();
+                    printDash(44);
+                    System.out.println("\nPress enter to return to main menu.");
+                    scanner.nextLine();
+                    break;
+                case "6":
                     break;
                 default:
                     System.out.println();
@@ -214,7 +286,7 @@ public class Main {
 
     private static void manageFines() {
         while (true) {
-            displayMenu("Manage Fines", "1. Pay Fine", "2. List All Fines", "3. Return To Main Menu");
+            displayMenu("Manage Fines", "1. Pay Fine", "2. List All Fines", "3. Print Fine Statement", "4. Return To Main Menu");
             String choice = scanner.nextLine();
             clearConsole();
             switch (choice) {
@@ -239,6 +311,15 @@ public class Main {
                     scanner.nextLine();
                     break;
                 case "3":
+                    System.out.println("\nPrint Fine Statement");
+                    printDash(20);
+                    theLibrary.printStatement();
+                    System.out.println();
+                    printDash(44);
+                    System.out.println("\nPress enter to return to main menu.");
+                    scanner.nextLine();
+                    break;
+                case "4":
                     break;
                 default:
                     System.out.println();
@@ -252,11 +333,11 @@ public class Main {
     }
 
     /**
-     * Searches for books based on various criteria such as title, author, or ISBN.
+     * Searches for books based on various criteria such as title, author, or ISBN, or ranks the best matches of title and author words.
      */
     private static void searchBooks() {
         while (true) {
-            displayMenu("Search For a Book", "1. Search For a Book By Title", "2. Search For a Book By Author", "3. Search For a Book By ISBN", "4. Return To Main Menu");
+            displayMenu("Search For a Book", "1. Search For a Book By Title", "2. Search For a Book By Author", "3. Search For a Book By ISBN", "4. Search By Title And Author, Allowing Typos", "5. Return To Main Menu");
             String choice = scanner.nextLine();
             clearConsole();
             switch (choice) {
@@ -288,6 +369,15 @@ public class Main {
                     scanner.nextLine();
                     break;
                 case "4":
+                    System.out.println("\nSearch By Title And Author, Allowing Typos");
+                    printDash(42);
+                    theLibrary.searchBooksRanked();
+                    System.out.println();
+                    printDash(44);
+                    System.out.println("\nPress enter to return to main menu.");
+                    scanner.nextLine();
+                    break;
+                case "5":
                     break;
                 default:
                     System.out.println();
@@ -348,10 +438,26 @@ public class Main {
     }
 
     /**
-     * Exits the application.
+     * Parses the port to serve requests on.
+     *
+     * @param text The port given on the command line.
+     * @return The port, or -1 if it is not a number from 1 to 65535.
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            return port >= 1 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Stops the background jobs, flushing pending state, and exits the application.
      */
     private static void exit() {
         System.out.println("Exiting the Library Management System.");
+        theLibrary.shutdown();
         scanner.close();
         System.exit(0);
     }
@@ -1,3 +1,4 @@
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -6,7 +7,8 @@ import java.util.regex.Pattern;
 public class Member {
     private String name;
     private String email;
-    private int fines = 0;
+    private int id;
+    private AtomicInteger fines = new AtomicInteger();
 
     /**
      * Constructs a new Member object with the specified name and email.
@@ -44,7 +46,7 @@ public class Member {
     public Member(String name, String email, int fines) {
         this.name = name;
         this.email = email;
-        this.fines = fines;
+        this.fines.set(fines);
     }
 
     /**
@@ -65,6 +67,24 @@ public class Member {
         return email;
     }
 
+    /**
+     * Gets the id assigned to the member by the library.
+     * 
+     * @return The id of the member, ordering members by when they were added.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id assigned to the member by the library.
+     * 
+     * @param id The id of the member.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Increments fines for the member.
      * 
@@ -72,8 +92,7 @@ public class Member {
      * @return The total fines after increment.
      */
     public int incrementFines(int fine) {
-        fines += fine;
-        return fines;
+        return fines.addAndGet(fine);
     }
 
     /**
@@ -82,7 +101,7 @@ public class Member {
      * @return The fines associated with the member.
      */
     public int getFines() {
-        return fines;
+        return fines.get();
     }
 
     /**
@@ -92,7 +111,6 @@ public class Member {
      * @return The total fines after decrement.
      */
     public int decrementFines(int fine) {
-        fines -= fine;
-        return fines;
+        return fines.addAndGet(-fine);
     }
 }
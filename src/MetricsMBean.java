@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes a metrics registry over JMX as read-only attributes.
+ * <p>
+ * Every counter and gauge is one attribute. Every histogram is published as name.count, name.meanMicros, name.p50Micros,
+ * name.p99Micros and name.maxMicros. Attributes are read from the registry on every request, so metrics added later appear too.
+ */
+public class MetricsMBean implements DynamicMBean {
+    private static final String[] HISTOGRAM_SUFFIXES = { ".count", ".meanMicros", ".p50Micros", ".p99Micros", ".maxMicros" }; // Attributes published per histogram
+
+    private MetricsRegistry registry; // Registry the attributes are read from
+
+    /**
+     * Constructs a MetricsMBean exposing a registry.
+     *
+     * @param registry The registry to expose.
+     */
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Reads one metric.
+     *
+     * @param attribute The attribute name.
+     * @return The current value as a Long.
+     * @throws AttributeNotFoundException If no metric has the name.
+     */
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.sum();
+        }
+        LongSupplier gauge = registry.getGauges().get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram histogram = dot < 0 ? null : registry.getHistograms().get(attribute.substring(0, dot));
+        if (histogram != null) {
+            switch (attribute.substring(dot)) {
+                case ".count":
+                    return histogram.getCount();
+                case ".meanMicros":
+                    return histogram.getMean() / 1000;
+                case ".p50Micros":
+                    return histogram.getPercentile(0.50) / 1000;
+                case ".p99Micros":
+                    return histogram.getPercentile(0.99) / 1000;
+                case ".maxMicros":
+                    return histogram.getMax() / 1000;
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException("No metric named " + attribute + ".");
+    }
+
+    /**
+     * Reads several metrics, leaving out names that are not metrics.
+     *
+     * @param attributes The attribute names.
+     * @return The metrics found.
+     */
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Unknown names are left out, as the JMX contract allows
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Rejects writes, since every metric is read-only.
+     *
+     * @param attribute The attribute to write.
+     * @throws AttributeNotFoundException Always.
+     */
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only.");
+    }
+
+    /**
+     * Rejects writes, since every metric is read-only.
+     *
+     * @param attributes The attributes to write.
+     * @return An empty list, as nothing was written.
+     */
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    /**
+     * Rejects operations, since the metrics offer none.
+     *
+     * @param actionName The operation name.
+     * @param params     The operation arguments.
+     * @param signature  The operation signature.
+     * @return Never returns.
+     * @throws ReflectionException Always.
+     */
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "The metrics offer no operations.");
+    }
+
+    /**
+     * Describes the metrics currently in the registry.
+     *
+     * @return The MBean description listing one read-only long attribute per metric.
+     */
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getHistograms().keySet()) {
+            for (String suffix : HISTOGRAM_SUFFIXES) {
+                attributes.add(new MBeanAttributeInfo(name + suffix, "long", "Latency histogram " + name, true, false, false));
+            }
+        }
+        for (Map.Entry<String, LongAdder> entry : registry.getCounters().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(), "long", "Counter " + entry.getKey(), true, false, false));
+        }
+        for (String name : registry.getGauges().keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, "long", "Gauge " + name, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Library metrics", attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,144 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Holds the named counters, latency histograms and gauges of the library.
+ * <p>
+ * Counters are LongAdders and histograms are LatencyHistograms, so recording never takes a lock. Gauges are only evaluated when the
+ * metrics are read. The registry can be published over JMX and rendered as text for the console and metrics dumps.
+ */
+public class MetricsRegistry {
+    private Map<String, LongAdder> counters = new ConcurrentSkipListMap<>(); // Counters keyed by name
+    private Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>(); // Latency histograms keyed by name
+    private Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>(); // Gauges keyed by name
+    private ObjectName objectName; // Name the registry is published under over JMX, or null
+
+    /**
+     * Gets the counter with the specified name, creating it on first use.
+     *
+     * @param name The name of the counter.
+     * @return The counter.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets the latency histogram with the specified name, creating it on first use.
+     *
+     * @param name The name of the histogram.
+     * @return The histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge read whenever the metrics are read.
+     *
+     * @param name  The name of the gauge.
+     * @param gauge Supplies the current value.
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Gets the counters.
+     *
+     * @return A read-only view of the counters keyed by name, in name order.
+     */
+    Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+
+    /**
+     * Gets the latency histograms.
+     *
+     * @return A read-only view of the histograms keyed by name, in name order.
+     */
+    Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * Gets the gauges.
+     *
+     * @return A read-only view of the gauges keyed by name, in name order.
+     */
+    Map<String, LongSupplier> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * Renders the current value of every metric as lines of text, latencies in milliseconds.
+     *
+     * @return The lines of the report.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            lines.add(entry.getKey() + " | Count: " + histogram.getCount() + " | Mean: " + millis(histogram.getMean()) + " | p50: " + millis(histogram.getPercentile(0.50))
+                    + " | p90: " + millis(histogram.getPercentile(0.90)) + " | p99: " + millis(histogram.getPercentile(0.99)) + " | Max: " + millis(histogram.getMax()));
+        }
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            lines.add(entry.getKey() + " | Count: " + entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            lines.add(entry.getKey() + " | Value: " + entry.getValue().getAsLong());
+        }
+        return lines;
+    }
+
+    /**
+     * Publishes the registry over JMX on the platform MBean server.
+     * <p>
+     * If the name is taken, for example by another library in the same process, the registry is published under the name with an id appended.
+     *
+     * @param name The object name to publish under, such as lms:type=Metrics.
+     * @throws JMException If the registry could not be published.
+     */
+    public void register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName candidate = new ObjectName(name);
+        if (server.isRegistered(candidate)) {
+            candidate = new ObjectName(name + ",id=" + System.identityHashCode(this));
+        }
+        server.registerMBean(new MetricsMBean(this), candidate);
+        objectName = candidate;
+    }
+
+    /**
+     * Withdraws the registry from JMX if it was published.
+     */
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.err.println("An error occurred while unregistering metrics: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    /**
+     * Formats nanoseconds as milliseconds.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in milliseconds to three decimals.
+     */
+    private static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / 1_000_000.0);
+    }
+}
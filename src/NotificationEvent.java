@@ -0,0 +1,36 @@
+/**
+ * Represents something a member is notified of about a copy of a book, published for notification processing.
+ */
+public abstract class NotificationEvent {
+    private BookCopy copy; // The copy the member is notified about
+    private Member member; // The member to notify
+
+    /**
+     * Constructs a NotificationEvent about a copy for a member.
+     *
+     * @param copy   The copy the member is notified about.
+     * @param member The member to notify.
+     */
+    protected NotificationEvent(BookCopy copy, Member member) {
+        this.copy = copy;
+        this.member = member;
+    }
+
+    /**
+     * Gets the copy the member is notified about.
+     *
+     * @return The copy.
+     */
+    public BookCopy getCopy() {
+        return copy;
+    }
+
+    /**
+     * Gets the member to notify.
+     *
+     * @return The member.
+     */
+    public Member getMember() {
+        return member;
+    }
+}
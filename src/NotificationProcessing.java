@@ -1,62 +1,135 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
- * Handles the processing of overdue notifications by sending email reminders to members.
+ * Handles the processing of overdue and hold notifications by sending email reminders to members.
+ * <p>
+ * Fine processing publishes an event for every fine applied, and the library publishes an event for every hold filled on return.
+ * The scheduler dispatches the queued events once per batch window instead of polling the loans. Each dispatch groups the events
+ * per member and sends each member one notification listing all of their overdue books and one listing all of their filled holds.
  */
-public class NotificationProcessing implements Runnable {
-    private Map<Book, Member> borrowedBooks; // Map of borrowed books to members
+public class NotificationProcessing {
+    private static final int QUEUE_CAPACITY = 10000; // Maximum number of undispatched events
+    public static final long BATCH_WINDOW_MILLIS = 1000; // Time events are collected between dispatches
+
+    private BlockingQueue<NotificationEvent> events = new ArrayBlockingQueue<>(QUEUE_CAPACITY); // Events waiting to be dispatched
+    private Library library; // Reference to the library
+    private volatile NotificationSender sender; // Sender used to deliver notifications
 
     /**
-     * Constructs a NotificationProcessing object with the borrowed books map from the library.
+     * Constructs a NotificationProcessing object that sends notifications to the console.
      *
      * @param library The library object containing the borrowed books information.
      */
     public NotificationProcessing(Library library) {
-        borrowedBooks = library.listBorrowedBooks();
+        this(library, new ConsoleNotificationSender());
+    }
+
+    /**
+     * Constructs a NotificationProcessing object that sends notifications through the specified sender.
+     *
+     * @param library The library object containing the borrowed books information.
+     * @param sender  The sender used to deliver notifications.
+     */
+    public NotificationProcessing(Library library, NotificationSender sender) {
+        this.library = library;
+        this.sender = sender;
+    }
 
+    /**
+     * Sets the sender used to deliver notifications.
+     *
+     * @param sender The sender used to deliver notifications.
+     */
+    public void setSender(NotificationSender sender) {
+        this.sender = sender;
     }
 
     /**
-     * Continuously runs the notification processing task.
+     * Publishes an event for a fine applied to an overdue copy.
+     * <p>
+     * If the queue is full the event is dropped. The copy stays marked as not notified, so it is included the next time an event for it is dispatched.
+     *
+     * @param copy   The overdue copy.
+     * @param member The member who was fined.
+     * @return true if the event was queued.
      */
-    public void run() {
-        try {
-            // Initial delay before starting notifications
-            Thread.sleep(1000);
-            while (true) {
-                notifications();
-                // Sleep for 5 minutes before the next check
-                Thread.sleep(1000 * 60 * 5);
+    public boolean publish(BookCopy copy, Member member) {
+        return events.offer(new OverdueEvent(copy, member));
+    }
+
+    /**
+     * Publishes the events for a batch of fines applied by a sweep.
+     * <p>
+     * Events that do not fit in the queue are dropped, as with publish, and their copies are included the next time an event for them is dispatched.
+     *
+     * @param fined The overdue copies fined, each with the member who was fined.
+     * @return The number of events queued.
+     */
+    public int publishAll(List<OverdueEvent> fined) {
+        int queued = 0;
+        for (OverdueEvent event : fined) {
+            if (!events.offer(event)) {
+                break; // Queue full, the remaining events would be dropped too
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            queued++;
         }
+        return queued;
     }
 
     /**
-     * Checks for overdue books and sends notifications to the corresponding members.
+     * Publishes an event for a returned copy checked out to the next member in the hold queue.
+     * <p>
+     * If the queue is full the event is dropped, and the member is not notified.
+     *
+     * @param copy   The copy checked out to the member.
+     * @param member The member whose hold was filled.
+     * @return true if the event was queued.
+     */
+    public boolean publishHold(BookCopy copy, Member member) {
+        return events.offer(new HoldReadyEvent(copy, member));
+    }
+
+    /**
+     * Sends notifications for all events published so far.
+     * <p>
+     * Run by the scheduler once per batch window, and once more on shutdown so no published event is left undelivered.
      */
     public void notifications() {
-        for (Map.Entry<Book, Member> entry : borrowedBooks.entrySet()) {
-            Book book = entry.getKey(); // Get the book
-            if (book.getOverDueState() > 0) { // Check if book is overdue
-                if (book.getOverDueState() > book.getNotificationState()) { // Check if notification has already been sent
-                    Member member = entry.getValue(); // Get the member
-                    book.incrementNotificationState(); // Increment notification state
-                    sendEmail(book, member); // Send email notification
-                }
-            }
+        if (events.isEmpty()) {
+            return;
         }
+        List<NotificationEvent> batch = new ArrayList<>();
+        events.drainTo(batch);
+        dispatch(batch);
     }
 
     /**
-     * Sends an email notification to the member regarding the overdue book and associated fines.
+     * Groups a batch of events per member and sends each member one notification.
+     * <p>
+     * Copies whose latest fine has already been notified, or that have been returned, are left out.
      *
-     * @param book   The overdue book.
-     * @param member The member who borrowed the book.
+     * @param batch The events to dispatch.
      */
-    public void sendEmail(Book book, Member member) {
-        // Print email notification message
-        System.out.println("Email: " + member.getEmail() + " Please return the book: " + book.getTitle() + " and pay your fine of R" + member.getFines() + ".");
+    private void dispatch(List<NotificationEvent> batch) {
+        Map<Member, List<Book>> booksByMember = new LinkedHashMap<>();
+        Map<Member, List<Book>> holdsByMember = new LinkedHashMap<>();
+        for (NotificationEvent event : batch) {
+            if (event instanceof HoldReadyEvent) {
+                holdsByMember.computeIfAbsent(event.getMember(), member -> new ArrayList<>()).add(event.getCopy().getBook());
+            } else if (library.claimNotification(event.getCopy())) { // Check and increment notification state if notification has not been sent
+                booksByMember.computeIfAbsent(event.getMember(), member -> new ArrayList<>()).add(event.getCopy().getBook());
+            }
+        }
+        for (Map.Entry<Member, List<Book>> entry : booksByMember.entrySet()) {
+            sender.send(entry.getKey(), entry.getValue()); // Send email notification
+        }
+        for (Map.Entry<Member, List<Book>> entry : holdsByMember.entrySet()) {
+            sender.sendHoldReady(entry.getKey(), entry.getValue()); // Send email notification
+        }
     }
 }
@@ -0,0 +1,24 @@
+import java.util.List;
+
+/**
+ * Sends overdue and hold notifications to library members.
+ * <p>
+ * Implementations receive one call per member and kind of notification per dispatch cycle, listing every book of the member in that cycle.
+ */
+public interface NotificationSender {
+    /**
+     * Sends a notification to a member about their overdue books and outstanding fines.
+     *
+     * @param member The member to notify.
+     * @param books  The overdue books of the member, never empty.
+     */
+    void send(Member member, List<Book> books);
+
+    /**
+     * Sends a notification to a member that books they placed a hold on have been checked out to them.
+     *
+     * @param member The member to notify.
+     * @param books  The books checked out to the member from their holds, never empty.
+     */
+    void sendHoldReady(Member member, List<Book> books);
+}
@@ -0,0 +1,14 @@
+/**
+ * Represents a fine applied to an overdue loan, published by fine processing for notification processing.
+ */
+public class OverdueEvent extends NotificationEvent {
+    /**
+     * Constructs an OverdueEvent for a copy whose overdue state was incremented.
+     *
+     * @param copy   The overdue copy.
+     * @param member The member who was fined.
+     */
+    public OverdueEvent(BookCopy copy, Member member) {
+        super(copy, member);
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Pages through an ordered snapshot of library records, such as the catalogue sorted by title.
+ * <p>
+ * The order is fixed when the cursor is opened, so pages neither repeat nor skip records when books or members are added meanwhile.
+ * Records removed from the library since are left out of the pages they fall on, which may therefore hold fewer records than asked for.
+ *
+ * @param <T> The type of record paged through.
+ */
+public class PageCursor<T> {
+    private List<T> records; // Records in page order when the cursor was opened
+    private Predicate<T> current; // Tests whether a record is still in the library
+
+    /**
+     * Constructs a PageCursor over a snapshot of records.
+     *
+     * @param records The records in page order, owned by the cursor from now on.
+     * @param current The test whether a record is still in the library.
+     */
+    public PageCursor(List<T> records, Predicate<T> current) {
+        this.records = records;
+        this.current = current;
+    }
+
+    /**
+     * Constructs a PageCursor over search results or another list that is already a snapshot.
+     *
+     * @param <T>     The type of record paged through.
+     * @param records The records in page order.
+     * @return The cursor over the records.
+     */
+    public static <T> PageCursor<T> of(List<T> records) {
+        return new PageCursor<>(records, record -> true);
+    }
+
+    /**
+     * Gets the number of records in the snapshot.
+     *
+     * @return The number of records when the cursor was opened.
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Gets the number of pages of a given size.
+     *
+     * @param limit The number of records per page.
+     * @return The number of pages, 0 if there are no records.
+     */
+    public int pageCount(int limit) {
+        return (records.size() + limit - 1) / limit;
+    }
+
+    /**
+     * Gets a page of records.
+     *
+     * @param offset The position of the first record of the page.
+     * @param limit  The most records on the page.
+     * @return The records on the page still in the library, in page order, empty past the last page.
+     * @throws IllegalArgumentException If the offset is negative or the limit is not positive.
+     */
+    public List<T> page(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw new IllegalArgumentException("Invalid page: offset " + offset + ", limit " + limit + ".");
+        }
+        if (offset >= records.size()) {
+            return Collections.emptyList();
+        }
+        List<T> page = new ArrayList<>(Math.min(limit, records.size() - offset));
+        for (T record : records.subList(offset, offset + Math.min(limit, records.size() - offset))) {
+            if (current.test(record)) {
+                page.add(record);
+            }
+        }
+        return page;
+    }
+}
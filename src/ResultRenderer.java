@@ -0,0 +1,152 @@
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders books, members, loans, ledger entries and audit events as console lines, buffering a page of lines and writing it in one go.
+ * <p>
+ * Lines are appended to a single builder reused across pages, and dates are formatted straight into it by a formatter shared by all
+ * renderers, so rendering a page allocates little beyond the text itself. Nothing is written until the page is flushed.
+ */
+public class ResultRenderer {
+    private static final DateTimeFormatter DUE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-LLL-yyyy HH:mm"); // Format of due dates and ledger entry times
+    private static final DateTimeFormatter EVENT_TIME_FORMAT = DateTimeFormatter.ofPattern("dd-LLL-yyyy HH:mm:ss"); // Format of audit event times
+    private static final int INITIAL_CAPACITY = 8192; // Characters the buffer holds before growing, enough for a typical page
+
+    private PrintStream out; // Stream pages are written to
+    private StringBuilder buffer = new StringBuilder(INITIAL_CAPACITY); // Lines rendered since the last flush
+
+    /**
+     * Constructs a ResultRenderer writing to a stream.
+     *
+     * @param out The stream to write pages to.
+     */
+    public ResultRenderer(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Renders a book, including its title, author, ISBN, and how many of its copies are available, followed by the due date and whether
+     * it is late of every copy on loan.
+     *
+     * @param book  The book to render.
+     * @param holds The number of holds waiting for the book.
+     */
+    public void book(Book book, int holds) {
+        buffer.append("Title: ").append(book.getTitle())
+                .append(" | Author: ").append(book.getAuthor())
+                .append(" | ISBN: ").append(book.getIsbn())
+                .append(" | Available: ").append(book.isAvailable() ? "Yes" : "No")
+                .append(" | Copies: ").append(book.getAvailableCopies()).append(" of ").append(book.getCopyCount())
+                .append(" available | Holds: ").append(holds).append('\n');
+        int slots = book.getCopySlots();
+        for (int i = 0; i < slots; i++) {
+            LocalDateTime dueDate = book.getBookReturnDueDate(i);
+            if (book.isOnLoan(i) && dueDate != null) {
+                buffer.append("    Copy ").append(i + 1).append(" | Due Date: ");
+                DUE_DATE_FORMAT.formatTo(dueDate, buffer);
+                buffer.append(" | Late : ").append(book.getOverDueState(i) > 0 ? "Yes" : "No").append('\n');
+            }
+        }
+    }
+
+    /**
+     * Renders a member, including their name, email, and fines.
+     *
+     * @param member The member to render.
+     */
+    public void member(Member member) {
+        buffer.append("Name: ").append(member.getName())
+                .append(" | Email: ").append(member.getEmail())
+                .append(" | Fines: R").append(member.getFines()).append('\n');
+    }
+
+    /**
+     * Renders a borrowed copy with its borrower and due date, unless it has been returned in the meantime.
+     *
+     * @param copy   The borrowed copy.
+     * @param member The member who borrowed the copy.
+     */
+    public void loan(BookCopy copy, Member member) {
+        LocalDateTime dueDate = copy.getBookReturnDueDate();
+        if (dueDate == null) {
+            return; // Returned while listing
+        }
+        buffer.append("Book: ").append(copy.getBook().getTitle())
+                .append(" | ISBN: ").append(copy.getBook().getIsbn())
+                .append(" | Member Name: ").append(member.getName())
+                .append(" | Member Email: ").append(member.getEmail())
+                .append(" | Member Fines: R").append(member.getFines())
+                .append(" | Due Date: ");
+        DUE_DATE_FORMAT.formatTo(dueDate, buffer);
+        buffer.append('\n');
+    }
+
+    /**
+     * Renders a copy borrowed by a member with its due date and whether it is late, unless it has been returned in the meantime.
+     *
+     * @param copy The borrowed copy.
+     */
+    public void loan(BookCopy copy) {
+        LocalDateTime dueDate = copy.getBookReturnDueDate();
+        if (dueDate == null) {
+            return; // Returned while listing
+        }
+        buffer.append("Book: ").append(copy.getBook().getTitle())
+                .append(" | ISBN: ").append(copy.getBook().getIsbn())
+                .append(" | Copy ").append(copy.getCopy() + 1)
+                .append(" | Due Date: ");
+        DUE_DATE_FORMAT.formatTo(dueDate, buffer);
+        buffer.append(" | Late : ").append(copy.getOverDueState() > 0 ? "Yes" : "No").append('\n');
+    }
+
+    /**
+     * Renders an entry of a member's fines statement, with the ISBN of the overdue book for a fine.
+     *
+     * @param entry The ledger entry.
+     */
+    public void ledgerEntry(LedgerEntry entry) {
+        DUE_DATE_FORMAT.formatTo(entry.getTime(), buffer);
+        if (entry.getType() == LedgerEntry.Type.CHARGE) {
+            buffer.append(" | Fine | ISBN: ").append(entry.getIsbn());
+        } else {
+            buffer.append(" | Payment");
+        }
+        buffer.append(" | R").append(entry.getAmount()).append(" | Balance: R").append(entry.getBalance()).append('\n');
+    }
+
+    /**
+     * Renders an audit event with its time and type, followed by the member and book involved, if any, and its detail.
+     *
+     * @param event The audit event.
+     */
+    public void auditEvent(AuditEvent event) {
+        EVENT_TIME_FORMAT.formatTo(event.getTime(), buffer);
+        buffer.append(" | ").append(event.getType());
+        if (event.getMemberName() != null) {
+            buffer.append(" | Member Name: ").append(event.getMemberName());
+        }
+        if (event.getIsbn() != null) {
+            buffer.append(" | ISBN: ").append(event.getIsbn());
+        }
+        buffer.append(" | ").append(event.getDetail()).append('\n');
+    }
+
+    /**
+     * Renders a line of text.
+     *
+     * @param text The text of the line.
+     */
+    public void line(String text) {
+        buffer.append(text).append('\n');
+    }
+
+    /**
+     * Writes the lines rendered since the last flush to the stream in a single write and clears the buffer for the next page.
+     */
+    public void flush() {
+        out.print(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Represents a named job run by the scheduler, either at a fixed rate or at the next deadline the job reports.
+ * <p>
+ * A job never runs concurrently with itself: each run schedules the next one once it finishes. A failing run is reported and counted,
+ * and the job is run again after its retry delay instead of being silently dropped. Every run records its run time and its lag,
+ * the time between when it was due and when it started.
+ */
+public class ScheduledJob {
+    private String name; // Name identifying the job
+    private ScheduledExecutorService executor; // Executor the job runs on
+    private LongSupplier task; // Runs the job once and returns the delay in milliseconds until the next run, negative if none is due
+    private long periodNanos; // Period of a fixed-rate job, zero for a deadline job
+    private long retryNanos; // Delay before running again after a failed run
+
+    private ScheduledFuture<?> future; // Pending run, guarded by this
+    private long dueNanos; // Time the pending run is due, from System.nanoTime, guarded by this
+    private long wakeNanos = Long.MAX_VALUE; // Earliest wake-up requested during a run, guarded by this
+    private boolean running = false; // Whether a run is in progress, guarded by this
+    private boolean cancelled = false; // Whether the job has been cancelled, guarded by this
+
+    private long runs = 0; // Completed runs, guarded by this
+    private long failures = 0; // Runs that threw an exception, guarded by this
+    private long totalRunNanos = 0; // Total run time, guarded by this
+    private long maxRunNanos = 0; // Longest run time, guarded by this
+    private long lastLagNanos = 0; // Lag of the latest run, guarded by this
+    private long maxLagNanos = 0; // Largest lag of any run, guarded by this
+
+    /**
+     * Constructs a ScheduledJob. Jobs are created and started by the scheduler.
+     *
+     * @param name        The name identifying the job.
+     * @param executor    The executor the job runs on.
+     * @param task        Runs the job once and returns the delay in milliseconds until the next run, negative if none is due.
+     * @param periodNanos The period of a fixed-rate job, zero for a deadline job.
+     * @param retryNanos  The delay before running again after a failed run.
+     */
+    ScheduledJob(String name, ScheduledExecutorService executor, LongSupplier task, long periodNanos, long retryNanos) {
+        this.name = name;
+        this.executor = executor;
+        this.task = task;
+        this.periodNanos = periodNanos;
+        this.retryNanos = retryNanos;
+    }
+
+    /**
+     * Schedules the first run of the job.
+     *
+     * @param delayMillis The delay in milliseconds before the first run.
+     */
+    synchronized void start(long delayMillis) {
+        schedule(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    /**
+     * Requests that the job runs no later than the specified delay from now.
+     * <p>
+     * Used when work with an earlier deadline arrives, such as a loan due before the one the job is waiting for.
+     * A request made while the job is running takes effect when the run finishes.
+     *
+     * @param delayMillis The delay in milliseconds before the job should run.
+     */
+    public synchronized void wakeIn(long delayMillis) {
+        if (cancelled) {
+            return;
+        }
+        long wake = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        if (running) {
+            wakeNanos = Math.min(wakeNanos, wake);
+        } else if (future == null || wake - dueNanos < 0) {
+            if (future != null) {
+                future.cancel(false);
+            }
+            schedule(wake);
+        }
+    }
+
+    /**
+     * Cancels the job. A run in progress finishes, but the job is not run again.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Checks whether the job has been cancelled.
+     *
+     * @return true if the job will not run again.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Gets the name of the job.
+     *
+     * @return The name identifying the job.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of completed runs.
+     *
+     * @return The number of runs, including failed runs.
+     */
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    /**
+     * Gets the number of runs that threw an exception.
+     *
+     * @return The number of failed runs.
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the average run time of the job.
+     *
+     * @return The average run time in nanoseconds, zero before the first run.
+     */
+    public synchronized long getAverageRunNanos() {
+        return runs == 0 ? 0 : totalRunNanos / runs;
+    }
+
+    /**
+     * Gets the longest run time of the job.
+     *
+     * @return The longest run time in nanoseconds.
+     */
+    public synchronized long getMaxRunNanos() {
+        return maxRunNanos;
+    }
+
+    /**
+     * Gets the lag of the latest run, the time between when it was due and when it started.
+     *
+     * @return The lag in nanoseconds.
+     */
+    public synchronized long getLastLagNanos() {
+        return lastLagNanos;
+    }
+
+    /**
+     * Gets the largest lag of any run.
+     *
+     * @return The largest lag in nanoseconds.
+     */
+    public synchronized long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    /**
+     * Runs the job once, records its metrics and schedules the next run.
+     */
+    private void runOnce() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            running = true;
+            future = null;
+            lastLagNanos = Math.max(0, start - dueNanos);
+            maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+        }
+        long delayMillis = -1;
+        boolean failed = false;
+        try {
+            delayMillis = task.getAsLong();
+        } catch (RuntimeException e) {
+            failed = true;
+            System.err.println("Scheduled job " + name + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+        long end = System.nanoTime();
+        synchronized (this) {
+            running = false;
+            runs++;
+            if (failed) {
+                failures++;
+            }
+            totalRunNanos += end - start;
+            maxRunNanos = Math.max(maxRunNanos, end - start);
+            if (cancelled) {
+                return;
+            }
+            long next = Long.MAX_VALUE;
+            if (failed) {
+                next = end + retryNanos;
+            } else if (periodNanos > 0) {
+                // Keep to the fixed rate, but skip runs missed while behind instead of running them back to back
+                next = Math.max(dueNanos + periodNanos, end);
+            } else if (delayMillis >= 0) {
+                next = end + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            }
+            if (wakeNanos != Long.MAX_VALUE && (next == Long.MAX_VALUE || wakeNanos - next < 0)) {
+                next = wakeNanos;
+            }
+            wakeNanos = Long.MAX_VALUE;
+            if (next != Long.MAX_VALUE) {
+                schedule(next);
+            }
+        }
+    }
+
+    /**
+     * Schedules the next run of the job. Must be called while holding the job's monitor.
+     *
+     * @param due The time the run is due, from System.nanoTime.
+     */
+    private void schedule(long due) {
+        dueNanos = due;
+        future = executor.schedule(this::runOnce, Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the library's background jobs on a small shared pool of threads.
+ * <p>
+ * Jobs run either at a fixed rate or at the next deadline they report, so adding a periodic job does not add a thread.
+ * Shutting the scheduler down cancels every job and waits for runs in progress to finish.
+ */
+public class Scheduler {
+    private ScheduledThreadPoolExecutor executor; // Pool running the jobs
+    private List<ScheduledJob> jobs = new CopyOnWriteArrayList<>(); // Jobs scheduled so far
+
+    /**
+     * Constructs a Scheduler whose threads are started as jobs need them.
+     *
+     * @param name    The name prefix of the scheduler's threads.
+     * @param threads The number of threads running jobs.
+     */
+    public Scheduler(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules a job to run at a fixed rate.
+     * <p>
+     * Runs missed while the job was behind are skipped rather than run back to back.
+     *
+     * @param name               The name identifying the job.
+     * @param initialDelayMillis The delay in milliseconds before the first run.
+     * @param periodMillis       The period in milliseconds between the starts of consecutive runs.
+     * @param task               The work done by each run.
+     * @return The scheduled job.
+     * @throws IllegalArgumentException If the period is not positive.
+     */
+    public ScheduledJob scheduleAtFixedRate(String name, long initialDelayMillis, long periodMillis, Runnable task) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("The period of a job must be positive.");
+        }
+        long period = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        return start(new ScheduledJob(name, executor, () -> {
+            task.run();
+            return 0;
+        }, period, period), initialDelayMillis);
+    }
+
+    /**
+     * Schedules a job that decides when it runs next.
+     * <p>
+     * Each run returns the delay until its next deadline, or a negative delay if no deadline is known, in which case the job waits
+     * until ScheduledJob.wakeIn is called.
+     *
+     * @param name               The name identifying the job.
+     * @param initialDelayMillis The delay in milliseconds before the first run.
+     * @param retryMillis        The delay in milliseconds before running again after a failed run.
+     * @param task               The work done by each run, returning the delay in milliseconds until the next run.
+     * @return The scheduled job.
+     */
+    public ScheduledJob scheduleByDeadline(String name, long initialDelayMillis, long retryMillis, LongSupplier task) {
+        return start(new ScheduledJob(name, executor, task, 0, TimeUnit.MILLISECONDS.toNanos(retryMillis)), initialDelayMillis);
+    }
+
+    /**
+     * Lists the jobs scheduled so far, including cancelled jobs.
+     *
+     * @return A list of the jobs in the order they were scheduled.
+     */
+    public List<ScheduledJob> listJobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    /**
+     * Cancels every job and waits for runs in progress to finish.
+     *
+     * @param timeoutMillis The longest time in milliseconds to wait for runs in progress.
+     * @return true if every run finished in time.
+     */
+    public boolean shutdown(long timeoutMillis) {
+        for (ScheduledJob job : jobs) {
+            job.cancel();
+        }
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Registers a job and schedules its first run.
+     *
+     * @param job                The job.
+     * @param initialDelayMillis The delay in milliseconds before the first run.
+     * @return The job.
+     */
+    private ScheduledJob start(ScheduledJob job, long initialDelayMillis) {
+        jobs.add(job);
+        job.start(initialDelayMillis);
+        return job;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary-encodes strings that repeat heavily, such as author names, as small integer codes.
+ * <p>
+ * Every distinct string is stored once and records hold its code, so a catalogue with many books per author keeps one copy of each name.
+ * Encoding a string already in the pool and decoding a code take no lock. Codes are never reused, so the pool only grows.
+ */
+public class StringPool {
+    private Map<String, Integer> codes = new ConcurrentHashMap<>(); // Code of every string in the pool
+    private volatile String[] strings = new String[16]; // Strings in the pool indexed by code
+    private int size = 0; // Number of strings in the pool, guarded by this
+
+    /**
+     * Gets the code of a string, adding the string to the pool on first use.
+     *
+     * @param value The string to encode.
+     * @return The code of the string.
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            // Store the string before publishing its code, so any thread given the code can decode it
+            strings[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gets the string with the specified code.
+     *
+     * @param code The code returned by encode.
+     * @return The string.
+     */
+    public String decode(int code) {
+        return strings[code];
+    }
+
+    /**
+     * Gets the number of distinct strings in the pool.
+     *
+     * @return The number of strings.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
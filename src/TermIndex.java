@@ -0,0 +1,542 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Maintains a term dictionary and an inverted index over the words of the titles and authors of the books in the library, for ranked
+ * searches that tolerate typos.
+ * <p>
+ * Titles and authors are split into lower-cased words. Every distinct word is a term with a posting list of the ids of the books using it,
+ * kept sorted in a primitive array. A query word matches its own term, the terms within a few edits of it found through a BK-tree over the
+ * dictionary when it is not a term itself, and, for the last word of the query, the terms it is a prefix of. A book matches when it
+ * matches every query word that matches any term, and is scored by how closely and how rarely its terms match, so the best matches are
+ * kept in a heap bounded by the number of results asked for.
+ * <p>
+ * The index is safe for concurrent use: searches share a read lock, changes take the write lock. Terms are never removed from the
+ * dictionary, so it only grows.
+ */
+public class TermIndex {
+    private static final double PREFIX_WEIGHT = 0.8; // Weight of a term the last query word is a prefix of
+    private static final double EDIT_WEIGHT = 0.5; // Factor the weight of a term is multiplied by for each edit
+    private static final int MIN_PREFIX_LENGTH = 3; // Shortest last query word completed by prefix
+    private static final int MAX_PREFIX_TERMS = 64; // Most terms a prefix expands to, in dictionary order
+    private static final int NO_TERM = -1; // Link of a BK-tree node without a child or sibling
+
+    private ReadWriteLock lock = new ReentrantReadWriteLock(); // Guards the dictionary, postings and tree below
+    private IntFunction<Book> books; // Resolves a book id to the book in the library
+    private TreeMap<String, Integer> dictionary = new TreeMap<>(); // Id of every term, in dictionary order for prefix lookups
+    private List<String> terms = new ArrayList<>(); // Every term indexed by id
+    private int[][] postings = new int[16][]; // Sorted ids of the books using each term
+    private int[] postingSizes = new int[16]; // Number of book ids in use in each posting
+    private int[] firstChild = new int[16]; // First child of each term in the BK-tree
+    private int[] nextSibling = new int[16]; // Next child of the parent of each term in the BK-tree
+    private int[] parentDistance = new int[16]; // Edit distance between each term and its parent in the BK-tree
+    private float[] lengthNorms = new float[16]; // Score factor of each book indexed by book id, favouring books with fewer terms
+    private int bookCount = 0; // Number of books in the index
+
+    /**
+     * A book and its relevance to a query, ordered from least to most relevant.
+     */
+    private static class Match implements Comparable<Match> {
+        private int bookId; // Id of the book
+        private double score; // Relevance of the book
+
+        /**
+         * Constructs a Match.
+         *
+         * @param bookId The id of the book.
+         * @param score  The relevance of the book.
+         */
+        private Match(int bookId, double score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        /**
+         * Orders matches by score, ranking the book added first higher between equal scores.
+         *
+         * @param other The match to compare to.
+         * @return A negative number if this match is less relevant, zero if equal, a positive number if more relevant.
+         */
+        public int compareTo(Match other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(other.bookId, bookId);
+        }
+    }
+
+    /**
+     * Constructs an empty TermIndex.
+     *
+     * @param books The function resolving a book id to the book in the library, or null if it is no longer there.
+     */
+    public TermIndex(IntFunction<Book> books) {
+        this.books = books;
+    }
+
+    /**
+     * Adds a book to the index.
+     * <p>
+     * The book must already have its id assigned, since postings hold book ids.
+     *
+     * @param book The book to be indexed.
+     */
+    public void add(Book book) {
+        lock.writeLock().lock();
+        try {
+            index(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of books to the index under a single acquisition of the lock.
+     * <p>
+     * The books must already have their ids assigned, since postings hold book ids.
+     *
+     * @param batch The books to be indexed.
+     */
+    public void addAll(Collection<Book> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : batch) {
+                index(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     *
+     * @param book The book to be removed from the index.
+     */
+    public void remove(Book book) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = false;
+            for (String word : wordsOf(book)) {
+                Integer term = dictionary.get(word);
+                if (term == null) {
+                    continue;
+                }
+                int[] posting = postings[term];
+                int size = postingSizes[term];
+                int at = Arrays.binarySearch(posting, 0, size, book.getId());
+                if (at >= 0) {
+                    System.arraycopy(posting, at + 1, posting, at, size - at - 1);
+                    postingSizes[term]--;
+                    removed = true;
+                }
+            }
+            if (removed) {
+                bookCount--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches for the books whose titles and authors best match the words of a query, tolerating typos and an unfinished last word.
+     *
+     * @param query The words to search for.
+     * @param limit The most books to return.
+     * @return The best matching books, most relevant first.
+     */
+    public List<Book> search(String query, int limit) {
+        List<String> words = new ArrayList<>(tokenize(query));
+        List<Book> results = new ArrayList<>();
+        if (words.isEmpty() || limit <= 0) {
+            return results;
+        }
+        lock.readLock().lock();
+        try {
+            // Expand every query word to the terms it matches, dropping words that match none
+            List<Map<Integer, Double>> expansions = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                Map<Integer, Double> expansion = expand(words.get(i), i == words.size() - 1);
+                if (!expansion.isEmpty()) {
+                    expansions.add(expansion);
+                }
+            }
+            if (expansions.isEmpty()) {
+                return results;
+            }
+            // Start from the word with the fewest postings, so the candidates only shrink from there
+            expansions.sort((a, b) -> Long.compare(postingTotal(a), postingTotal(b)));
+            int[] candidates = union(expansions.get(0));
+            double[] scores = new double[candidates.length];
+            int count = candidates.length;
+            double[] wordScores = new double[count];
+            for (Map<Integer, Double> expansion : expansions) {
+                if (expansion == expansions.get(0) && expansion.size() == 1) {
+                    // Every candidate uses the single term of the first word
+                    Arrays.fill(scores, expansion.values().iterator().next());
+                    continue;
+                }
+                Arrays.fill(wordScores, 0, count, 0);
+                for (Map.Entry<Integer, Double> entry : expansion.entrySet()) {
+                    score(candidates, count, entry.getKey(), entry.getValue(), wordScores);
+                }
+                // Keep the candidates matching this word as well
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (wordScores[i] > 0) {
+                        candidates[kept] = candidates[i];
+                        scores[kept] = scores[i] + wordScores[i];
+                        kept++;
+                    }
+                }
+                count = kept;
+            }
+            // Keep the best matches in a min-heap bounded by the limit, only touching the heap for a score above its least
+            PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, count) + 1);
+            double floor = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                int bookId = candidates[i];
+                double score = scores[i] * lengthNorms[bookId];
+                if (score <= floor) {
+                    continue;
+                }
+                if (best.size() == limit) {
+                    best.poll();
+                }
+                best.add(new Match(bookId, score));
+                if (best.size() == limit) {
+                    floor = best.peek().score;
+                }
+            }
+            while (!best.isEmpty()) {
+                Book book = books.apply(best.poll().bookId);
+                if (book != null) {
+                    results.add(book);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // The heap yields the least relevant match first
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Gets the number of distinct terms in the dictionary.
+     *
+     * @return The number of terms.
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into its distinct lower-cased words.
+     *
+     * @param text The text to split.
+     * @return The words in the order they first appear.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, giving up once it is certain to exceed a bound.
+     *
+     * @param a        The first string.
+     * @param b        The second string.
+     * @param maxEdits The largest distance of interest.
+     * @return The edit distance, or maxEdits + 1 if it exceeds maxEdits.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxEdits + 1);
+    }
+
+    /**
+     * Adds the words of a book to the dictionary and the book to their postings. Must be called while holding the write lock.
+     *
+     * @param book The book to be indexed.
+     */
+    private void index(Book book) {
+        Set<String> words = wordsOf(book);
+        for (String word : words) {
+            Integer term = dictionary.get(word);
+            if (term == null) {
+                term = addTerm(word);
+            }
+            insert(term, book.getId());
+        }
+        if (book.getId() >= lengthNorms.length) {
+            lengthNorms = Arrays.copyOf(lengthNorms, Math.max(lengthNorms.length * 2, book.getId() + 1));
+        }
+        lengthNorms[book.getId()] = (float) (1 / Math.sqrt(Math.max(1, words.size())));
+        bookCount++;
+    }
+
+    /**
+     * Adds a word to the dictionary and the BK-tree. Must be called while holding the write lock.
+     *
+     * @param word The new term.
+     * @return The id of the term.
+     */
+    private int addTerm(String word) {
+        int term = terms.size();
+        if (term == postings.length) {
+            int capacity = term * 2;
+            postings = Arrays.copyOf(postings, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            parentDistance = Arrays.copyOf(parentDistance, capacity);
+        }
+        terms.add(word);
+        dictionary.put(word, term);
+        postings[term] = new int[1];
+        firstChild[term] = NO_TERM;
+        nextSibling[term] = NO_TERM;
+        if (term == 0) {
+            return term; // The first term is the root of the tree
+        }
+        // Descend to the node with no child at the distance of the new term, and add the term there
+        int node = 0;
+        while (true) {
+            int distance = editDistance(word, terms.get(node), Integer.MAX_VALUE - 1);
+            int child = firstChild[node];
+            while (child != NO_TERM && parentDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NO_TERM) {
+                parentDistance[term] = distance;
+                nextSibling[term] = firstChild[node];
+                firstChild[node] = term;
+                return term;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Adds a book id to the posting of a term, keeping the posting sorted. Must be called while holding the write lock.
+     *
+     * @param term   The id of the term.
+     * @param bookId The id of the book.
+     */
+    private void insert(int term, int bookId) {
+        int[] posting = postings[term];
+        int size = postingSizes[term];
+        // Books are almost always added in id order, so the id usually goes at the end
+        int at = size == 0 || posting[size - 1] < bookId ? size : Arrays.binarySearch(posting, 0, size, bookId);
+        if (at >= 0 && at < size) {
+            return; // Already indexed
+        }
+        at = at < 0 ? -at - 1 : at;
+        if (size == posting.length) {
+            posting = Arrays.copyOf(posting, size * 2);
+            postings[term] = posting;
+        }
+        System.arraycopy(posting, at, posting, at + 1, size - at);
+        posting[at] = bookId;
+        postingSizes[term] = size + 1;
+    }
+
+    /**
+     * Finds the terms a query word matches, weighted by closeness of the match and rarity of the term.
+     * <p>
+     * A word that is a term matches itself. Any other word matches the terms within a few edits of it, more for longer words.
+     * The last word of the query may be unfinished and also matches the terms it is a prefix of.
+     *
+     * @param word The query word.
+     * @param last Whether the word is the last of the query.
+     * @return The weight of every matching term keyed by term id.
+     */
+    private Map<Integer, Double> expand(String word, boolean last) {
+        Map<Integer, Double> expansion = new HashMap<>();
+        Integer exact = dictionary.get(word);
+        if (exact != null) {
+            expansion.put(exact, 1.0);
+        } else if (!terms.isEmpty()) {
+            int maxEdits = maxEdits(word);
+            // Search the BK-tree, only descending into children whose distance to the parent can lie within range
+            int[] stack = new int[64];
+            int depth = 0;
+            stack[depth++] = 0;
+            while (depth > 0) {
+                int node = stack[--depth];
+                int distance = editDistance(word, terms.get(node), Integer.MAX_VALUE - 1);
+                if (distance <= maxEdits) {
+                    expansion.put(node, Math.pow(EDIT_WEIGHT, distance));
+                }
+                for (int child = firstChild[node]; child != NO_TERM; child = nextSibling[child]) {
+                    if (Math.abs(parentDistance[child] - distance) <= maxEdits) {
+                        if (depth == stack.length) {
+                            stack = Arrays.copyOf(stack, depth * 2);
+                        }
+                        stack[depth++] = child;
+                    }
+                }
+            }
+        }
+        if (last && word.length() >= MIN_PREFIX_LENGTH) {
+            int added = 0;
+            for (Map.Entry<String, Integer> entry : dictionary.tailMap(word, false).entrySet()) {
+                if (!entry.getKey().startsWith(word) || added == MAX_PREFIX_TERMS) {
+                    break;
+                }
+                expansion.merge(entry.getValue(), PREFIX_WEIGHT, Math::max);
+                added++;
+            }
+        }
+        // Weight every term by its inverse document frequency, so rare words count for more
+        expansion.replaceAll((term, weight) -> weight * Math.log(1 + (double) bookCount / Math.max(1, postingSizes[term])));
+        expansion.values().removeIf(weight -> weight <= 0);
+        return expansion;
+    }
+
+    /**
+     * Gets the number of edits tolerated in a query word, more for longer words.
+     *
+     * @param word The query word.
+     * @return The largest edit distance at which a term matches the word.
+     */
+    private static int maxEdits(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Totals the postings of the terms a query word matches.
+     *
+     * @param expansion The matching terms keyed by term id.
+     * @return The number of book ids in their postings.
+     */
+    private long postingTotal(Map<Integer, Double> expansion) {
+        long total = 0;
+        for (int term : expansion.keySet()) {
+            total += postingSizes[term];
+        }
+        return total;
+    }
+
+    /**
+     * Merges the postings of the terms a query word matches into one sorted array of distinct book ids.
+     *
+     * @param expansion The matching terms keyed by term id.
+     * @return The ids of the books using any of the terms, in ascending order.
+     */
+    private int[] union(Map<Integer, Double> expansion) {
+        if (expansion.size() == 1) {
+            int term = expansion.keySet().iterator().next();
+            return Arrays.copyOf(postings[term], postingSizes[term]);
+        }
+        int[] ids = new int[(int) postingTotal(expansion)];
+        int size = 0;
+        for (int term : expansion.keySet()) {
+            System.arraycopy(postings[term], 0, ids, size, postingSizes[term]);
+            size += postingSizes[term];
+        }
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    /**
+     * Raises the score of every candidate using a term to the weight of the term, intersecting the sorted candidates with the sorted
+     * posting by galloping, so a short list is matched against a long one in time close to the length of the short one.
+     *
+     * @param candidates The sorted ids of the candidate books.
+     * @param count      The number of candidates in use.
+     * @param term       The id of the term.
+     * @param weight     The weight of the term for the query word.
+     * @param wordScores The best score of each candidate for the query word so far.
+     */
+    private void score(int[] candidates, int count, int term, double weight, double[] wordScores) {
+        int[] posting = postings[term];
+        int size = postingSizes[term];
+        int low = 0;
+        for (int i = 0; i < count && low < size; i++) {
+            int id = candidates[i];
+            // Gallop ahead to a position past the id, then binary search the last step
+            int step = 1;
+            int high = low;
+            while (high < size && posting[high] < id) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(posting, low, Math.min(high + 1, size), id);
+            if (at >= 0) {
+                wordScores[i] = Math.max(wordScores[i], weight);
+                low = at + 1;
+            } else {
+                low = -at - 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the distinct words of the title and author of a book.
+     *
+     * @param book The book.
+     * @return The words of the book.
+     */
+    private static Set<String> wordsOf(Book book) {
+        Set<String> words = tokenize(book.getTitle());
+        words.addAll(tokenize(book.getAuthor()));
+        return words;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Represents a single checkout or return in a batch of circulation transactions.
+ * <p>
+ * In a transaction file every line holds one transaction in the form {@code checkout, isbn, member name[, due days]} or {@code return, isbn, member name}.
+ */
+public class Transaction {
+    /**
+     * The kind of circulation transaction.
+     */
+    public enum Type {
+        CHECKOUT, // Check a book out to a member
+        RETURN // Return a book borrowed by a member
+    }
+
+    private Type type; // The kind of transaction
+    private String isbn; // ISBN of the book
+    private String memberName; // Name of the member
+    private int dueDays; // Days until a checked out book is due
+
+    /**
+     * Constructs a Transaction.
+     *
+     * @param type       The kind of transaction.
+     * @param isbn       The ISBN of the book.
+     * @param memberName The name of the member.
+     * @param dueDays    The number of days until a checked out book should be returned, ignored for returns.
+     */
+    public Transaction(Type type, String isbn, String memberName, int dueDays) {
+        this.type = type;
+        this.isbn = isbn;
+        this.memberName = memberName;
+        this.dueDays = dueDays;
+    }
+
+    /**
+     * Parses a line of a transaction file.
+     *
+     * @param line The line to parse.
+     * @return The transaction on the line.
+     * @throws IllegalArgumentException If the line is not a valid transaction.
+     */
+    public static Transaction parse(String line) {
+        String[] parts = line.split(", ");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("Expected type, ISBN, member name and optional due days.");
+        }
+        Type type;
+        switch (parts[0].trim().toLowerCase()) {
+            case "checkout":
+                type = Type.CHECKOUT;
+                break;
+            case "return":
+                type = Type.RETURN;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown transaction type " + parts[0].trim() + ".");
+        }
+        int dueDays = FineProcessing.DUEDAYS;
+        if (parts.length == 4) {
+            if (type == Type.RETURN) {
+                throw new IllegalArgumentException("Due days only apply to checkouts.");
+            }
+            try {
+                dueDays = Integer.parseInt(parts[3].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid due days " + parts[3].trim() + ".");
+            }
+        }
+        return new Transaction(type, parts[1].trim(), parts[2].trim(), dueDays);
+    }
+
+    /**
+     * Gets the kind of transaction.
+     *
+     * @return The kind of transaction.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ISBN of the book.
+     *
+     * @return The ISBN of the book.
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Gets the name of the member.
+     *
+     * @return The name of the member.
+     */
+    public String getMemberName() {
+        return memberName;
+    }
+
+    /**
+     * Gets the number of days until a checked out book should be returned.
+     *
+     * @return The number of due days.
+     */
+    public int getDueDays() {
+        return dueDays;
+    }
+}
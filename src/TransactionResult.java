@@ -0,0 +1,48 @@
+/**
+ * Represents the outcome of applying a circulation transaction.
+ */
+public class TransactionResult {
+    private Transaction transaction; // The transaction applied
+    private boolean successful; // Whether the transaction was applied
+    private String message; // Outcome or reason for failure
+
+    /**
+     * Constructs a TransactionResult.
+     *
+     * @param transaction The transaction applied.
+     * @param successful  Whether the transaction was applied.
+     * @param message     The outcome, or the reason the transaction failed.
+     */
+    public TransactionResult(Transaction transaction, boolean successful, String message) {
+        this.transaction = transaction;
+        this.successful = successful;
+        this.message = message;
+    }
+
+    /**
+     * Gets the transaction applied.
+     *
+     * @return The transaction.
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Checks if the transaction was applied.
+     *
+     * @return True if the transaction was applied, false if it failed.
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * Gets the outcome, or the reason the transaction failed.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
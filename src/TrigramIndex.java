@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Maintains an inverted trigram index over one text field of the books in the library.
+ * <p>
+ * Substring searches only check the books that contain every trigram of the query instead of the whole catalogue.
+ * <p>
+ * The index is safe for concurrent use. A search running alongside an add or remove may or may not see that book.
+ */
+public class TrigramIndex {
+    private static final int GRAM_LENGTH = 3; // Number of characters in each indexed gram
+    private static final Comparator<Book> BY_ID = Comparator.comparingInt(Book::getId); // Orders books by when they were added
+
+    private Map<String, Set<Book>> postings = new ConcurrentHashMap<>(); // Books containing each trigram
+    private Map<Book, String> keys = new ConcurrentSkipListMap<>(BY_ID); // Lower-cased field of each indexed book, in catalogue order
+    private Function<Book, String> field; // Extracts the indexed field from a book
+    private StringPool keyPool; // Shares the lower-cased keys of a field whose values repeat, or null
+
+    /**
+     * Constructs an empty TrigramIndex over the specified book field.
+     * 
+     * @param field The function extracting the text to index from a book.
+     */
+    public TrigramIndex(Function<Book, String> field) {
+        this(field, false);
+    }
+
+    /**
+     * Constructs an empty TrigramIndex over the specified book field.
+     * 
+     * @param field     The function extracting the text to index from a book.
+     * @param repeating Whether the field repeats across many books, such as an author, in which case every distinct lower-cased value is
+     *                  kept once instead of once per book.
+     */
+    public TrigramIndex(Function<Book, String> field, boolean repeating) {
+        this.field = field;
+        this.keyPool = repeating ? new StringPool() : null;
+    }
+
+    /**
+     * Adds a book to the index.
+     * <p>
+     * The book must already have its id assigned, since search results are ordered by id.
+     * 
+     * @param book The book to be indexed.
+     */
+    public void add(Book book) {
+        String key = keyOf(book);
+        keys.put(book, key);
+        for (String gram : grams(key)) {
+            // Add inside compute so a concurrent remove cannot drop the posting in between
+            postings.compute(gram, (g, posting) -> {
+                if (posting == null) {
+                    posting = ConcurrentHashMap.newKeySet();
+                }
+                posting.add(book);
+                return posting;
+            });
+        }
+    }
+
+    /**
+     * Adds a batch of books to the index, updating each posting once for the whole batch.
+     * <p>
+     * The books must already have their ids assigned, since search results are ordered by id.
+     * 
+     * @param batch The books to be indexed.
+     */
+    public void addAll(Collection<Book> batch) {
+        Map<String, List<Book>> grouped = new HashMap<>();
+        for (Book book : batch) {
+            String key = keyOf(book);
+            keys.put(book, key);
+            for (String gram : grams(key)) {
+                grouped.computeIfAbsent(gram, g -> new ArrayList<>()).add(book);
+            }
+        }
+        for (Map.Entry<String, List<Book>> entry : grouped.entrySet()) {
+            postings.compute(entry.getKey(), (g, posting) -> {
+                if (posting == null) {
+                    posting = ConcurrentHashMap.newKeySet();
+                }
+                posting.addAll(entry.getValue());
+                return posting;
+            });
+        }
+    }
+
+    /**
+     * Removes a book from the index.
+     * 
+     * @param book The book to be removed from the index.
+     */
+    public void remove(Book book) {
+        String key = keys.remove(book);
+        if (key == null) {
+            return;
+        }
+        for (String gram : grams(key)) {
+            postings.computeIfPresent(gram, (g, posting) -> {
+                posting.remove(book);
+                return posting.isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    /**
+     * Searches for books whose indexed field contains the specified string, ignoring case.
+     * 
+     * @param query The partial or full text to search for.
+     * @return A list of matching books in catalogue order.
+     */
+    public List<Book> search(String query) {
+        String needle = query.toLowerCase();
+        List<Book> results = new ArrayList<>();
+        if (needle.length() < GRAM_LENGTH) {
+            // Too short to use the trigram postings, check the cached lower-cased keys instead
+            for (Map.Entry<Book, String> entry : keys.entrySet()) {
+                if (entry.getValue().contains(needle)) {
+                    results.add(entry.getKey());
+                }
+            }
+            return results;
+        }
+        // Every match contains every trigram of the query, so the smallest posting bounds the candidates
+        Set<Book> candidates = null;
+        for (String gram : grams(needle)) {
+            Set<Book> posting = postings.get(gram);
+            if (posting == null) {
+                return results;
+            }
+            if (candidates == null || posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+        for (Book book : candidates) {
+            String key = keys.get(book);
+            if (key != null && key.contains(needle)) {
+                results.add(book);
+            }
+        }
+        results.sort(BY_ID);
+        return results;
+    }
+
+    /**
+     * Gets the lower-cased field of a book, shared with other books with the same value if the field repeats.
+     * 
+     * @param book The book.
+     * @return The key the book is indexed under.
+     */
+    private String keyOf(Book book) {
+        String key = field.apply(book).toLowerCase();
+        return keyPool == null ? key : keyPool.decode(keyPool.encode(key));
+    }
+
+    /**
+     * Splits a lower-cased key into its distinct trigrams.
+     * 
+     * @param key The key to split.
+     * @return The distinct trigrams of the key.
+     */
+    private static Set<String> grams(String key) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= key.length(); i++) {
+            grams.add(key.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
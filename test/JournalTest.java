@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests replaying a journal whose last record was cut short by a crash.
+ */
+public class JournalTest {
+    private static final long GENERATION = 7; // Generation of the snapshot the journal follows
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 5, 10, 12, 0); // Due date of the journaled checkout
+
+    @TempDir
+    Path directory;
+
+    private String file; // File path of the journal
+    private Library library; // Library the journal is replayed into
+
+    @BeforeEach
+    public void writeJournal() throws IOException {
+        file = directory.resolve("journal.dat").toString();
+        Journal journal = new Journal(file);
+        journal.open(GENERATION);
+        journal.recordAddBook(new Book("One", "Author", "1111"));
+        journal.recordAddMember(new Member("Alice", "a@x"));
+        journal.recordCheckout("1111", "Alice", DUE);
+        journal.close();
+        // A return record cut short in the middle of its ISBN
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+            out.writeByte(6);
+            out.writeShort(4);
+            out.writeBytes("11");
+        }
+        library = new Library(false);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        library.shutdown();
+    }
+
+    @Test
+    public void replayAppliesCompleteRecordsAndStopsAtPartialRecord() throws IOException {
+        assertEquals(3, new Journal(file).replay(library, GENERATION));
+        Book book = library.searchBooksByIsbn("1111");
+        assertFalse(book.isAvailable());
+        assertTrue(book.isOnLoan(0));
+        assertEquals(library.checkMember("Alice").getId(), book.getMemberId(0));
+        assertEquals(DUE, book.getBookReturnDueDate(0));
+    }
+
+    @Test
+    public void replaySkipsJournalOfAnotherGeneration() throws IOException {
+        assertEquals(0, new Journal(file).replay(library, GENERATION + 1));
+        assertEquals(null, library.searchBooksByIsbn("1111"));
+    }
+
+    @Test
+    public void countIncludesOnlyCompleteRecords() throws IOException {
+        assertEquals(3, new Journal(file).count());
+    }
+}
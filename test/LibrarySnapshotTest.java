@@ -0,0 +1,175 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests reading a version 5 snapshot, which refers to borrowers by email, and writing it back as the current version.
+ */
+public class LibrarySnapshotTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 5, 10, 12, 0); // Due date of the borrowed copy
+    private static final LocalDateTime CHARGED = LocalDateTime.of(2024, 5, 11, 12, 0); // Time of the fine charged for it
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsVersion5AndRoundTripsThroughCurrentVersion() throws IOException {
+        String v5 = directory.resolve("v5.dat").toString();
+        writeVersion5(v5);
+        LoanTable loans = new LoanTable();
+        LibrarySnapshot snapshot = LibrarySnapshot.read(v5, loans);
+        assertEquals(3, snapshot.getGeneration());
+        assertContents(snapshot, loans);
+
+        String current = directory.resolve("current.dat").toString();
+        LibrarySnapshot.write(current, snapshot.getGeneration(), snapshot.getBooks(), snapshot.getMembers(), snapshot.getHolds(), snapshot.getLedger());
+        LoanTable reloaded = new LoanTable();
+        LibrarySnapshot again = LibrarySnapshot.read(current, reloaded);
+        assertEquals(3, again.getGeneration());
+        assertContents(again, reloaded);
+    }
+
+    @Test
+    public void truncatedSnapshotLeavesLoanTableUntouched() throws IOException {
+        String v5 = directory.resolve("v5.dat").toString();
+        writeVersion5(v5);
+        try (RandomAccessFile file = new RandomAccessFile(v5, "rw")) {
+            file.setLength(file.length() - 6); // Cut the ledger short, after the books and their loans
+        }
+        LoanTable loans = new LoanTable();
+        assertThrows(IOException.class, () -> LibrarySnapshot.read(v5, loans));
+        assertEquals(0, loans.size());
+    }
+
+    /**
+     * Checks the books, members, holds and ledger written by writeVersion5.
+     *
+     * @param snapshot The snapshot read.
+     * @param loans    The loan table the snapshot was read into.
+     */
+    private static void assertContents(LibrarySnapshot snapshot, LoanTable loans) {
+        List<Member> members = snapshot.getMembers();
+        assertEquals(2, members.size());
+        assertEquals("Alice", members.get(0).getName());
+        assertEquals(1, members.get(0).getId());
+        assertEquals("Bob", members.get(1).getName());
+        assertEquals(2, members.get(1).getId());
+        assertEquals(50, members.get(1).getFines());
+
+        List<Book> books = snapshot.getBooks();
+        assertEquals(2, books.size());
+        Book borrowed = books.get(0);
+        assertEquals("1111", borrowed.getIsbn());
+        assertEquals(2, borrowed.getCopyCount());
+        assertTrue(borrowed.isOnLoan(0));
+        assertEquals(2, borrowed.getMemberId(0)); // Bob, looked up by email in version 5
+        assertEquals(DUE, borrowed.getBookReturnDueDate(0));
+        assertEquals(1, borrowed.getOverDueState(0));
+        assertTrue(borrowed.isAvailable(1));
+        assertFalse(books.get(1).isOnLoan(0));
+        assertEquals(1, loans.size());
+
+        assertEquals(List.of("Alice"), snapshot.getHolds().get("1111"));
+        assertEquals(1, snapshot.getLedger().size());
+        LedgerEntry fine = snapshot.getLedger().get(0);
+        assertEquals(LedgerEntry.Type.CHARGE, fine.getType());
+        assertEquals(CHARGED, fine.getTime());
+        assertEquals("Bob", fine.getMemberName());
+        assertEquals("1111", fine.getIsbn());
+        assertEquals(50, fine.getAmount());
+        assertEquals(50, fine.getBalance());
+    }
+
+    /**
+     * Writes a version 5 snapshot by hand: books before members, borrowers referred to by email and members without ids.
+     *
+     * @param file The path of the snapshot file.
+     * @throws IOException If the snapshot could not be written.
+     */
+    private static void writeVersion5(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x4C4D5331);
+            out.writeInt(5);
+            out.writeLong(3);
+            out.writeInt(2);
+            writeString(out, "One");
+            writeString(out, "Author");
+            writeString(out, "1111");
+            out.writeInt(2);
+            writeCopy(out, false, DUE.toEpochSecond(ZoneOffset.UTC), 1, "b@x");
+            writeCopy(out, true, Long.MIN_VALUE, 0, null);
+            writeString(out, "Two");
+            writeString(out, "Author");
+            writeString(out, "2222");
+            out.writeInt(1);
+            writeCopy(out, true, Long.MIN_VALUE, 0, null);
+            out.writeInt(2);
+            writeString(out, "Alice");
+            writeString(out, "a@x");
+            out.writeInt(0);
+            writeString(out, "Bob");
+            writeString(out, "b@x");
+            out.writeInt(50);
+            out.writeInt(1);
+            writeString(out, "1111");
+            out.writeInt(1);
+            writeString(out, "Alice");
+            out.writeInt(1);
+            out.writeByte(LedgerEntry.Type.CHARGE.ordinal());
+            out.writeLong(CHARGED.toEpochSecond(ZoneOffset.UTC));
+            writeString(out, "Bob");
+            writeString(out, "1111");
+            out.writeInt(50);
+            out.writeInt(50);
+        }
+    }
+
+    /**
+     * Writes a copy of a version 5 book.
+     *
+     * @param out          The stream to write to.
+     * @param available    Whether the copy is on the shelf.
+     * @param dueEpoch     The due date as epoch seconds.
+     * @param overDueState The number of times the copy has been overdue.
+     * @param memberEmail  The email of the borrower, or null.
+     * @throws IOException If the copy could not be written.
+     */
+    private static void writeCopy(DataOutputStream out, boolean available, long dueEpoch, int overDueState, String memberEmail) throws IOException {
+        out.writeByte(available ? 1 : 0);
+        out.writeLong(dueEpoch);
+        out.writeInt(overDueState);
+        out.writeInt(0);
+        writeString(out, memberEmail);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string, or the null marker.
+     *
+     * @param out   The stream to write to.
+     * @param value The string, may be null.
+     * @throws IOException If the string could not be written.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the open-addressing loan table, including probe runs that wrap around the end of a segment and the backward shift on removal.
+ */
+public class LoanTableTest {
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L; // Same multiplier as LoanTable, to pick colliding keys
+    private static final int SEGMENT_SHIFT = 60; // Bits dropped from a hash to index an empty segment of 16 slots
+
+    @Test
+    public void putReplacesAndRemoveClearsLoan() {
+        LoanTable loans = new LoanTable();
+        long key = LoanTable.key(1, 0);
+        loans.put(key, 7, 1000, 0, 0);
+        loans.put(key, 8, 2000, 1, 0);
+        assertEquals(1, loans.size());
+        assertEquals(8, loans.getMemberId(key));
+        assertEquals(2000, loans.getDueEpoch(key));
+        assertEquals(1, loans.getOverDueState(key));
+
+        assertEquals(8, loans.remove(key));
+        assertEquals(0, loans.size());
+        assertEquals(LoanTable.NO_MEMBER, loans.getMemberId(key));
+        assertEquals(LoanTable.NO_DUE_DATE, loans.getDueEpoch(key));
+        assertEquals(LoanTable.NO_MEMBER, loans.remove(key));
+    }
+
+    @Test
+    public void removeShiftsProbeRunBackAcrossEndOfSegment() {
+        // Three copies of one segment that all hash to its last slot wrap around to the first slots, followed by a copy whose home is slot 0
+        long[] last = findKeys(15, 3);
+        long first = findKeys(0, 1)[0];
+        LoanTable loans = new LoanTable();
+        for (int i = 0; i < last.length; i++) {
+            loans.put(last[i], i + 1, 100 + i, 0, 0);
+        }
+        loans.put(first, 9, 109, 0, 0);
+
+        assertEquals(1, loans.remove(last[0]));
+        assertEquals(2, loans.getMemberId(last[1]));
+        assertEquals(3, loans.getMemberId(last[2]));
+        assertEquals(9, loans.getMemberId(first));
+
+        assertEquals(3, loans.remove(last[2]));
+        assertEquals(2, loans.getMemberId(last[1]));
+        assertEquals(9, loans.getMemberId(first));
+        assertEquals(LoanTable.NO_MEMBER, loans.getMemberId(last[0]));
+        assertEquals(2, loans.size());
+    }
+
+    @Test
+    public void matchesHashMapAcrossResizes() {
+        LoanTable loans = new LoanTable();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            long key = LoanTable.key(1 + random.nextInt(2000), random.nextInt(4));
+            if (random.nextBoolean()) {
+                int memberId = 1 + random.nextInt(500);
+                loans.put(key, memberId, i, 0, 0);
+                expected.put(key, memberId);
+            } else {
+                Integer memberId = expected.remove(key);
+                assertEquals(memberId == null ? LoanTable.NO_MEMBER : memberId, loans.remove(key));
+            }
+        }
+        assertEquals(expected.size(), loans.size());
+        for (Map.Entry<Long, Integer> loan : expected.entrySet()) {
+            assertEquals((int) loan.getValue(), loans.getMemberId(loan.getKey()));
+        }
+        int[] visited = new int[1];
+        loans.forEach((key, memberId, dueEpoch, overDueState, notificationState) -> {
+            assertEquals((int) expected.get(key), memberId);
+            visited[0]++;
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+
+    @Test
+    public void countsLoansDueBeforeTime() {
+        LoanTable loans = new LoanTable();
+        for (int book = 1; book <= 100; book++) {
+            loans.put(LoanTable.key(book, 0), 1, book * 10L, 0, 0);
+        }
+        assertEquals(0, loans.countDueBefore(10));
+        assertEquals(49, loans.countDueBefore(500));
+        assertEquals(100, loans.countDueBefore(Long.MAX_VALUE));
+    }
+
+    /**
+     * Finds keys of the segment of book ids 1, 65, 129 and so on whose home is a slot of an empty segment.
+     *
+     * @param slot  The home slot.
+     * @param count The number of keys to find.
+     * @return The keys, with distinct copies.
+     */
+    private static long[] findKeys(int slot, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (int book = 1; found < count; book += 64) {
+            for (int copy = 0; copy < 8 && found < count; copy++) {
+                long key = LoanTable.key(book, copy);
+                if ((int) ((key * HASH_MULTIPLIER) >>> SEGMENT_SHIFT) == slot) {
+                    keys[found++] = key;
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,28 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that filling a hold on return notifies the member through the notification sender.
+ */
+public class NotificationProcessingTest {
+    @Test
+    public void returnFillingHoldNotifiesNextMember() {
+        Library library = new Library(false);
+        InMemoryNotificationSender sender = new InMemoryNotificationSender();
+        library.setNotificationSender(sender);
+        library.addBook(new Book("One", "Author", "1111"));
+        library.addMember(new Member("Alice", "a@x"));
+        library.addMember(new Member("Bob", "b@x"));
+        library.checkoutBook("1111", "Alice", 14);
+        library.placeHold("1111", "Bob");
+
+        Member holder = library.returnBook("1111", "Alice");
+        library.shutdown(); // Dispatches the notifications published so far
+
+        assertEquals("Bob", holder.getName());
+        assertEquals(List.of("b@x: ready 1111"), sender.listSent());
+    }
+}